@@ -0,0 +1,350 @@
+package com.optitem.cache;
+
+import de.tr7zw.changeme.nbtapi.NBTType;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBTCompoundList;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBTList;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory stand-in for the NBT-API compound surface, so the codec and trimming code can be benchmarked without
+ * a server. Values are plain Java objects; {@link #view()} exposes them through a {@link ReadWriteNBT} proxy and
+ * {@code toString()} renders SNBT the way the NBT-API does.
+ */
+final class FixtureNbt implements InvocationHandler {
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+    private ReadWriteNBT view;
+
+    static FixtureNbt unwrap(ReadWriteNBT compound) {
+        return (FixtureNbt) Proxy.getInvocationHandler(compound);
+    }
+
+    static FixtureList list(NBTType elementType) {
+        return new FixtureList(elementType);
+    }
+
+    FixtureNbt put(String key, Object value) {
+        values.put(key, value);
+        return this;
+    }
+
+    FixtureNbt compound(String key) {
+        FixtureNbt child = new FixtureNbt();
+        values.put(key, child);
+        return child;
+    }
+
+    ReadWriteNBT view() {
+        if (view == null) {
+            view = (ReadWriteNBT) Proxy.newProxyInstance(FixtureNbt.class.getClassLoader(),
+                    new Class<?>[] { ReadWriteNBT.class }, this);
+        }
+        return view;
+    }
+
+    FixtureNbt copy() {
+        FixtureNbt copy = new FixtureNbt();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            copy.values.put(entry.getKey(), copyValue(entry.getValue()));
+        }
+        return copy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        String key = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+        switch (name) {
+            case "getKeys":
+                return new LinkedHashSet<>(values.keySet());
+            case "hasTag":
+            case "hasKey":
+                return values.containsKey(key);
+            case "getType":
+                return typeOf(values.get(key));
+            case "getListType":
+                return values.get(key) instanceof FixtureList list ? list.elementType : null;
+            case "getByte":
+            case "getShort":
+            case "getInteger":
+            case "getLong":
+            case "getFloat":
+            case "getDouble":
+            case "getString":
+            case "getByteArray":
+            case "getIntArray":
+            case "getLongArray":
+                return values.get(key);
+            case "getCompound":
+                return values.get(key) instanceof FixtureNbt child ? child.view() : null;
+            case "getOrCreateCompound":
+                return ((FixtureNbt) values.computeIfAbsent(key, ignored -> new FixtureNbt())).view();
+            case "getCompoundList":
+                return listFor(key, NBTType.NBTTagCompound).view();
+            case "getStringList":
+                return listFor(key, NBTType.NBTTagString).view();
+            case "getIntegerList":
+                return listFor(key, NBTType.NBTTagInt).view();
+            case "getLongList":
+                return listFor(key, NBTType.NBTTagLong).view();
+            case "getFloatList":
+                return listFor(key, NBTType.NBTTagFloat).view();
+            case "getDoubleList":
+                return listFor(key, NBTType.NBTTagDouble).view();
+            case "getIntArrayList":
+                return listFor(key, NBTType.NBTTagIntArray).view();
+            case "removeKey":
+                values.remove(key);
+                return null;
+            case "toString":
+                StringBuilder out = new StringBuilder(256);
+                writeCompound(out, this);
+                return out.toString();
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                if (name.startsWith("set") && args != null && args.length == 2) {
+                    values.put(key, args[1]);
+                    return null;
+                }
+                throw new UnsupportedOperationException("FixtureNbt does not implement " + name);
+        }
+    }
+
+    private FixtureList listFor(String key, NBTType elementType) {
+        Object existing = values.get(key);
+        if (existing instanceof FixtureList list) {
+            return list;
+        }
+        FixtureList created = new FixtureList(elementType);
+        values.put(key, created);
+        return created;
+    }
+
+    private static NBTType typeOf(Object value) {
+        if (value instanceof Byte) {
+            return NBTType.NBTTagByte;
+        } else if (value instanceof Short) {
+            return NBTType.NBTTagShort;
+        } else if (value instanceof Integer) {
+            return NBTType.NBTTagInt;
+        } else if (value instanceof Long) {
+            return NBTType.NBTTagLong;
+        } else if (value instanceof Float) {
+            return NBTType.NBTTagFloat;
+        } else if (value instanceof Double) {
+            return NBTType.NBTTagDouble;
+        } else if (value instanceof String) {
+            return NBTType.NBTTagString;
+        } else if (value instanceof byte[]) {
+            return NBTType.NBTTagByteArray;
+        } else if (value instanceof int[]) {
+            return NBTType.NBTTagIntArray;
+        } else if (value instanceof long[]) {
+            return NBTType.NBTTagLongArray;
+        } else if (value instanceof FixtureNbt) {
+            return NBTType.NBTTagCompound;
+        } else if (value instanceof FixtureList) {
+            return NBTType.NBTTagList;
+        }
+        return NBTType.NBTTagEnd;
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof FixtureNbt compound) {
+            return compound.copy();
+        } else if (value instanceof FixtureList list) {
+            FixtureList copy = new FixtureList(list.elementType);
+            for (Object element : list.elements) {
+                copy.elements.add(copyValue(element));
+            }
+            return copy;
+        } else if (value instanceof byte[] bytes) {
+            return bytes.clone();
+        } else if (value instanceof int[] ints) {
+            return ints.clone();
+        } else if (value instanceof long[] longs) {
+            return longs.clone();
+        }
+        return value;
+    }
+
+    private static void writeCompound(StringBuilder out, FixtureNbt compound) {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : compound.values.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            writeKey(out, entry.getKey());
+            out.append(':');
+            writeValue(out, entry.getValue());
+        }
+        out.append('}');
+    }
+
+    private static void writeKey(StringBuilder out, String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == '+')) {
+                writeString(out, key);
+                return;
+            }
+        }
+        out.append(key);
+    }
+
+    private static void writeValue(StringBuilder out, Object value) {
+        if (value instanceof Byte b) {
+            out.append(b).append('b');
+        } else if (value instanceof Short s) {
+            out.append(s).append('s');
+        } else if (value instanceof Integer i) {
+            out.append(i);
+        } else if (value instanceof Long l) {
+            out.append(l).append('L');
+        } else if (value instanceof Float f) {
+            out.append(f).append('f');
+        } else if (value instanceof Double d) {
+            out.append(d).append('d');
+        } else if (value instanceof String s) {
+            writeString(out, s);
+        } else if (value instanceof byte[] bytes) {
+            out.append("[B;");
+            for (int i = 0; i < bytes.length; i++) {
+                out.append(i == 0 ? "" : ",").append(bytes[i]).append('b');
+            }
+            out.append(']');
+        } else if (value instanceof int[] ints) {
+            out.append("[I;");
+            for (int i = 0; i < ints.length; i++) {
+                out.append(i == 0 ? "" : ",").append(ints[i]);
+            }
+            out.append(']');
+        } else if (value instanceof long[] longs) {
+            out.append("[L;");
+            for (int i = 0; i < longs.length; i++) {
+                out.append(i == 0 ? "" : ",").append(longs[i]).append('L');
+            }
+            out.append(']');
+        } else if (value instanceof FixtureNbt compound) {
+            writeCompound(out, compound);
+        } else if (value instanceof FixtureList list) {
+            out.append('[');
+            for (int i = 0; i < list.elements.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                writeValue(out, list.elements.get(i));
+            }
+            out.append(']');
+        }
+    }
+
+    private static void writeString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    /** List value; compound elements are stored as {@link FixtureNbt} and handed out through their views. */
+    static final class FixtureList implements InvocationHandler {
+
+        private final NBTType elementType;
+        private final List<Object> elements = new ArrayList<>();
+        private Object view;
+
+        private FixtureList(NBTType elementType) {
+            this.elementType = elementType;
+        }
+
+        FixtureList add(Object element) {
+            elements.add(element);
+            return this;
+        }
+
+        private Object view() {
+            if (view == null) {
+                Class<?> type = elementType == NBTType.NBTTagCompound ? ReadWriteNBTCompoundList.class
+                        : ReadWriteNBTList.class;
+                view = Proxy.newProxyInstance(FixtureNbt.class.getClassLoader(), new Class<?>[] { type }, this);
+            }
+            return view;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "size":
+                    return elements.size();
+                case "isEmpty":
+                    return elements.isEmpty();
+                case "get":
+                    return external(elements.get((Integer) args[0]));
+                case "iterator":
+                    Iterator<Object> backing = elements.iterator();
+                    return new Iterator<Object>() {
+                        @Override
+                        public boolean hasNext() {
+                            return backing.hasNext();
+                        }
+
+                        @Override
+                        public Object next() {
+                            return external(backing.next());
+                        }
+
+                        @Override
+                        public void remove() {
+                            backing.remove();
+                        }
+                    };
+                case "add":
+                    elements.add(args[0] instanceof ReadWriteNBT compound ? unwrap(compound) : args[0]);
+                    return true;
+                case "addCompound":
+                    FixtureNbt created = new FixtureNbt();
+                    elements.add(created);
+                    return created.view();
+                case "remove":
+                    return external(elements.remove((int) (Integer) args[0]));
+                case "clear":
+                    elements.clear();
+                    return null;
+                case "toString":
+                    StringBuilder out = new StringBuilder();
+                    writeValue(out, this);
+                    return out.toString();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException("FixtureList does not implement " + method.getName());
+            }
+        }
+
+        private static Object external(Object element) {
+            return element instanceof FixtureNbt compound ? compound.view() : element;
+        }
+    }
+}
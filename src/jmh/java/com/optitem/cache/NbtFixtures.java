@@ -0,0 +1,169 @@
+package com.optitem.cache;
+
+import de.tr7zw.changeme.nbtapi.NBTType;
+
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Synthetic item NBT shaped like what players actually drop: enchanted gear with lore and attributes, written
+ * books, textured player heads, and full shulker boxes of each. Generation is seeded, so every run sees the same
+ * bytes.
+ */
+final class NbtFixtures {
+
+    static final String ENCHANTED_GEAR = "enchanted_gear";
+    static final String WRITTEN_BOOK = "written_book";
+    static final String PLAYER_HEAD = "player_head";
+    static final String SHULKER_GEAR = "shulker_gear";
+    static final String SHULKER_BOOKS = "shulker_books";
+    static final String SHULKER_HEADS = "shulker_heads";
+
+    private static final int SHULKER_SLOTS = 27;
+    private static final String[] GEAR = { "diamond_sword", "netherite_pickaxe", "diamond_chestplate", "bow",
+            "netherite_helmet", "trident", "elytra", "diamond_boots" };
+    private static final String[] ENCHANTMENTS = { "sharpness", "unbreaking", "mending", "looting", "fire_aspect",
+            "efficiency", "fortune", "protection", "thorns", "power", "infinity" };
+
+    private NbtFixtures() {
+    }
+
+    static FixtureNbt create(String name) {
+        Random random = new Random(name.hashCode());
+        return switch (name) {
+            case ENCHANTED_GEAR -> enchantedGear(random, 0);
+            case WRITTEN_BOOK -> writtenBook(random, 0);
+            case PLAYER_HEAD -> playerHead(random, 0);
+            case SHULKER_GEAR -> shulker(random, ENCHANTED_GEAR);
+            case SHULKER_BOOKS -> shulker(random, WRITTEN_BOOK);
+            case SHULKER_HEADS -> shulker(random, PLAYER_HEAD);
+            default -> throw new IllegalArgumentException("Unknown fixture: " + name);
+        };
+    }
+
+    private static FixtureNbt shulker(Random random, String content) {
+        FixtureNbt root = item("shulker_box");
+        FixtureNbt blockEntity = root.compound("tag").compound("BlockEntityTag");
+        blockEntity.put("id", "minecraft:shulker_box");
+        FixtureNbt.FixtureList items = FixtureNbt.list(NBTType.NBTTagCompound);
+        for (int slot = 0; slot < SHULKER_SLOTS; slot++) {
+            FixtureNbt stack = switch (content) {
+                case WRITTEN_BOOK -> writtenBook(random, slot);
+                case PLAYER_HEAD -> playerHead(random, slot);
+                default -> enchantedGear(random, slot);
+            };
+            stack.put("Slot", (byte) slot);
+            items.add(stack);
+        }
+        blockEntity.put("Items", items);
+        return root;
+    }
+
+    private static FixtureNbt enchantedGear(Random random, int index) {
+        FixtureNbt root = item(GEAR[index % GEAR.length]);
+        FixtureNbt tag = root.compound("tag");
+        tag.put("Damage", random.nextInt(200));
+        tag.put("RepairCost", 1 + random.nextInt(39));
+
+        FixtureNbt.FixtureList enchantments = FixtureNbt.list(NBTType.NBTTagCompound);
+        int count = 3 + random.nextInt(5);
+        for (int i = 0; i < count; i++) {
+            FixtureNbt enchantment = new FixtureNbt();
+            enchantment.put("id", "minecraft:" + ENCHANTMENTS[(index + i) % ENCHANTMENTS.length]);
+            enchantment.put("lvl", (short) (1 + random.nextInt(5)));
+            enchantments.add(enchantment);
+        }
+        tag.put("Enchantments", enchantments);
+
+        FixtureNbt display = tag.compound("display");
+        display.put("Name", textComponent("Relic of the " + word(random, 8) + " #" + index));
+        FixtureNbt.FixtureList lore = FixtureNbt.list(NBTType.NBTTagString);
+        for (int line = 0; line < 4; line++) {
+            lore.add(textComponent(sentence(random, 6)));
+        }
+        display.put("Lore", lore);
+
+        FixtureNbt.FixtureList modifiers = FixtureNbt.list(NBTType.NBTTagCompound);
+        for (String attribute : new String[] { "generic.attack_damage", "generic.attack_speed" }) {
+            FixtureNbt modifier = new FixtureNbt();
+            modifier.put("AttributeName", attribute);
+            modifier.put("Name", attribute);
+            modifier.put("Amount", random.nextDouble() * 10.0D);
+            modifier.put("Operation", 0);
+            modifier.put("UUID", uuidArray(random));
+            modifier.put("Slot", "mainhand");
+            modifiers.add(modifier);
+        }
+        tag.put("AttributeModifiers", modifiers);
+        tag.put("CustomModelData", 1000 + index);
+        return root;
+    }
+
+    private static FixtureNbt writtenBook(Random random, int index) {
+        FixtureNbt root = item("written_book");
+        FixtureNbt tag = root.compound("tag");
+        tag.put("title", "Chronicle " + word(random, 6) + " " + index);
+        tag.put("author", word(random, 10));
+        tag.put("generation", random.nextInt(3));
+        tag.put("resolved", (byte) 1);
+        FixtureNbt.FixtureList pages = FixtureNbt.list(NBTType.NBTTagString);
+        int pageCount = 20 + random.nextInt(30);
+        for (int page = 0; page < pageCount; page++) {
+            pages.add(textComponent(sentence(random, 40)));
+        }
+        tag.put("pages", pages);
+        return root;
+    }
+
+    private static FixtureNbt playerHead(Random random, int index) {
+        FixtureNbt root = item("player_head");
+        FixtureNbt owner = root.compound("tag").compound("SkullOwner");
+        owner.put("Id", uuidArray(random));
+        owner.put("Name", word(random, 12));
+        FixtureNbt texture = new FixtureNbt();
+        texture.put("Value", base64(random, 300));
+        texture.put("Signature", base64(random, 512));
+        owner.compound("Properties").put("textures", FixtureNbt.list(NBTType.NBTTagCompound).add(texture));
+        return root;
+    }
+
+    private static FixtureNbt item(String material) {
+        FixtureNbt root = new FixtureNbt();
+        root.put("id", "minecraft:" + material);
+        root.put("Count", (byte) 1);
+        return root;
+    }
+
+    private static String textComponent(String text) {
+        return "{\"text\":\"" + text + "\",\"italic\":false,\"color\":\"gold\"}";
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(word(random, 3 + random.nextInt(7)));
+        }
+        return sentence.toString();
+    }
+
+    private static String word(Random random, int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+
+    private static String base64(Random random, int rawBytes) {
+        byte[] raw = new byte[rawBytes];
+        random.nextBytes(raw);
+        return Base64.getEncoder().encodeToString(raw);
+    }
+
+    private static int[] uuidArray(Random random) {
+        return new int[] { random.nextInt(), random.nextInt(), random.nextInt(), random.nextInt() };
+    }
+}
@@ -0,0 +1,111 @@
+package com.optitem.cache;
+
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costs of the NBT units the spawn and restore paths call for the fixture corpus: encoding and decoding a
+ * snapshot, its signature ({@code sum}), the size walk against the shulker budget and the shulker trimmer. Like
+ * production, everything works on the item's {@code tag} compound, which is the root an {@code NBTItem} exposes.
+ * <p>
+ * Anything that needs a live {@code ItemStack}, NMS or ProtocolLib ({@code buildProcessedItem} as a whole,
+ * {@code CachedEntry.createItemStack}, the packet rewrite) is not covered here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+
+    private static final int MAX_SHULKER_NBT_BYTES = 200 * 1024;
+
+    @Param({ NbtFixtures.ENCHANTED_GEAR, NbtFixtures.WRITTEN_BOOK, NbtFixtures.PLAYER_HEAD,
+            NbtFixtures.SHULKER_GEAR, NbtFixtures.SHULKER_BOOKS, NbtFixtures.SHULKER_HEADS })
+    public String fixture;
+
+    private FixtureNbt source;
+    private ReadWriteNBT compound;
+    private byte[] snapshot;
+    private ShulkerTrimmer trimmer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = NbtFixtures.create(fixture);
+        compound = source.view().getCompound("tag");
+        snapshot = SnapshotCodec.encode(compound);
+        trimmer = new ShulkerTrimmer(NbtSizer.compoundSize(compound) / 2);
+    }
+
+    @Benchmark
+    public CacheKey sum() {
+        return CacheKey.hash(snapshot);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return SnapshotCodec.encode(compound);
+    }
+
+    /** The SNBT round trip the size checks used before {@link NbtSizer}, kept as a baseline. */
+    @Benchmark
+    public int serializedSize() {
+        return compound.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Benchmark
+    public boolean exceedsBudget() {
+        return NbtSizer.exceeds(compound, MAX_SHULKER_NBT_BYTES);
+    }
+
+    @Benchmark
+    public long compoundSize() {
+        return NbtSizer.compoundSize(compound);
+    }
+
+    /** The binary decode {@code SnapshotCodec.decode} runs, into a fixture compound instead of an NBTContainer. */
+    @Benchmark
+    public ReadWriteNBT decode() {
+        ReadWriteNBT target = new FixtureNbt().view();
+        SnapshotCodec.decodeInto(ByteBuffer.wrap(snapshot), target);
+        return target;
+    }
+
+    /** Trims to half the NBT size, so every shulker fixture has to give up several tags. */
+    @Benchmark
+    public boolean trim(TrimState state) {
+        return trimmer.trim(state.itemTag, state.messages);
+    }
+
+    /** Fresh copy per invocation, since trimming mutates the compounds it is given. */
+    @State(Scope.Thread)
+    public static class TrimState {
+
+        private ReadWriteNBT itemTag;
+        private final List<String> messages = new ArrayList<>();
+
+        @Setup(Level.Invocation)
+        public void copy(SnapshotBenchmark benchmark) {
+            itemTag = benchmark.source.copy().view().getCompound("tag");
+            messages.clear();
+        }
+    }
+}
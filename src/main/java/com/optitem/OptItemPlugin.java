@@ -1,8 +1,12 @@
 package com.optitem;
 
+import com.optitem.cache.CacheSettings;
 import com.optitem.cache.NBTCacheManager;
+import com.optitem.command.OptItemCommand;
 import com.optitem.listener.ItemListener;
+import com.optitem.metrics.PrometheusExporter;
 import com.optitem.protocol.ItemEntityPacketInterceptor;
+import org.bukkit.command.PluginCommand;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
@@ -11,25 +15,42 @@ public final class OptItemPlugin extends JavaPlugin {
     private NBTCacheManager cacheManager;
     private ItemListener itemListener;
     private ItemEntityPacketInterceptor packetInterceptor;
+    private PrometheusExporter metricsExporter;
 
     @Override
     public void onEnable() {
         saveDefaultConfig();
         FileConfiguration config = getConfig();
-        long cleanupInterval = Math.max(10L, config.getLong("cache-cleanup-interval-seconds", 60L));
-        int maxShulkerNbtBytes = Math.max(1024,
-                config.getInt("max-shulker-nbt-bytes", 200 * 1024));
-        double playerQuitRadius = Math.max(0D, config.getDouble("player-quit-restore-radius", 32.0D));
-        boolean debugLogging = config.getBoolean("debug-logging", false);
+        CacheSettings settings = CacheSettings.fromConfig(config);
+        boolean debugLogging = settings.isDebugLogging();
 
-        cacheManager = new NBTCacheManager(this, cleanupInterval, maxShulkerNbtBytes, debugLogging);
+        if (settings.isMinimalPlaceholdersRefused()) {
+            getLogger().warning("placeholder-mode: minimal needs persistent-cache.enabled; using full placeholders");
+        }
+
+        cacheManager = new NBTCacheManager(this, settings);
         cacheManager.start();
 
-        itemListener = new ItemListener(cacheManager, playerQuitRadius);
+        itemListener = new ItemListener(cacheManager, settings.getPlayerQuitRestoreRadius());
         getServer().getPluginManager().registerEvents(itemListener, this);
 
+        PluginCommand command = getCommand("optitem");
+        if (command != null) {
+            OptItemCommand executor = new OptItemCommand(cacheManager);
+            command.setExecutor(executor);
+            command.setTabCompleter(executor);
+        }
+
+        if (settings.isMetricsExport()) {
+            metricsExporter = new PrometheusExporter(this, cacheManager,
+                    getDataFolder().toPath().resolve(settings.getMetricsExportFile()),
+                    settings.getMetricsExportIntervalSeconds());
+            metricsExporter.start();
+        }
+
         if (getServer().getPluginManager().isPluginEnabled("ProtocolLib")) {
-            packetInterceptor = new ItemEntityPacketInterceptor(this, cacheManager, debugLogging);
+            packetInterceptor = new ItemEntityPacketInterceptor(this, cacheManager,
+                    settings.getClientLodDistance(), debugLogging);
             packetInterceptor.register();
             getLogger().info("ProtocolLib integration enabled; clients will see full item data.");
         } else {
@@ -37,12 +58,18 @@ public final class OptItemPlugin extends JavaPlugin {
         }
 
         getLogger().info(() -> String.format(
-                "OptItem ready. Cleanup interval: %d seconds, max shulker NBT: %d bytes, quit radius: %.1f, debug: %s",
-                cleanupInterval, maxShulkerNbtBytes, playerQuitRadius, debugLogging));
+                "OptItem ready. Cleanup interval: %d seconds, max shulker NBT: %d bytes, quit radius: %.1f, "
+                        + "placeholders: %s, debug: %s",
+                settings.getCleanupIntervalSeconds(), settings.getMaxShulkerNbtBytes(),
+                settings.getPlayerQuitRestoreRadius(), settings.isMinimalPlaceholders() ? "minimal" : "full",
+                debugLogging));
     }
 
     @Override
     public void onDisable() {
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
         if (packetInterceptor != null) {
             packetInterceptor.unregister();
         }
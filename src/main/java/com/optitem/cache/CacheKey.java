@@ -0,0 +1,147 @@
+package com.optitem.cache;
+
+/**
+ * 128-bit content address of an encoded snapshot (MurmurHash3 x64/128 over the snapshot bytes).
+ */
+public final class CacheKey {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long high;
+    private final long low;
+
+    private CacheKey(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static CacheKey of(long high, long low) {
+        return new CacheKey(high, low);
+    }
+
+    static CacheKey hash(byte[] data) {
+        return hash(data, 0, data.length);
+    }
+
+    static CacheKey hash(byte[] data, int offset, int length) {
+        long h1 = 0L;
+        long h2 = 0L;
+        int blocks = length >>> 4;
+        int index = offset;
+        for (int i = 0; i < blocks; i++, index += 16) {
+            long k1 = readLongLE(data, index);
+            long k2 = readLongLE(data, index + 8);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0L;
+        long k2 = 0L;
+        int tail = length & 15;
+        for (int i = tail - 1; i >= 8; i--) {
+            k2 ^= (data[index + i] & 0xFFL) << ((i - 8) << 3);
+        }
+        if (tail > 8) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+            k1 ^= (data[index + i] & 0xFFL) << (i << 3);
+        }
+        if (tail > 0) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new CacheKey(h1, h2);
+    }
+
+    static CacheKey fromIntArray(int[] values) {
+        if (values == null || values.length != 4) {
+            return null;
+        }
+        long high = ((long) values[0] << 32) | (values[1] & 0xFFFFFFFFL);
+        long low = ((long) values[2] << 32) | (values[3] & 0xFFFFFFFFL);
+        return new CacheKey(high, low);
+    }
+
+    int[] toIntArray() {
+        return new int[] { (int) (high >>> 32), (int) high, (int) (low >>> 32), (int) low };
+    }
+
+    public long high() {
+        return high;
+    }
+
+    public long low() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof CacheKey key)) {
+            return false;
+        }
+        return high == key.high && low == key.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    private static long readLongLE(byte[] data, int index) {
+        return (data[index] & 0xFFL)
+                | (data[index + 1] & 0xFFL) << 8
+                | (data[index + 2] & 0xFFL) << 16
+                | (data[index + 3] & 0xFFL) << 24
+                | (data[index + 4] & 0xFFL) << 32
+                | (data[index + 5] & 0xFFL) << 40
+                | (data[index + 6] & 0xFFL) << 48
+                | (data[index + 7] & 0xFFL) << 56;
+    }
+
+    private static long fmix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,147 @@
+package com.optitem.cache;
+
+import de.tr7zw.changeme.nbtapi.NBT;
+import de.tr7zw.changeme.nbtapi.NBTItem;
+import de.tr7zw.changeme.nbtapi.NBTType;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadableNBT;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+/**
+ * The cache signature carried by placeholder stacks. It lives in the stack's persistent data container as a
+ * {@code LONG_ARRAY} under {@code optitem:cache_ref}. Writes go through {@link ItemMeta}; reads happen on packet
+ * threads for every tagged stack, so they look the key up in the item tag in place instead of building an
+ * {@link ItemMeta}, which for a shulker would parse its whole {@code BlockEntityTag}. Placeholders written before
+ * that carry a top-level {@code CacheRef} int array, which is only looked for when enabled for a world that still
+ * holds some. The original plugin
+ * wrote {@code CacheRef} as a plain int, which no entry can be found for; those stacks are never treated as
+ * placeholders and lose the tag when they are cached again. Minimal placeholders additionally carry
+ * {@code optitem:cache_minimal}, since stripping their marker would leave a bare stack.
+ */
+final class CacheMarker {
+
+    static final String LEGACY_KEY = "CacheRef";
+
+    private static final NamespacedKey KEY = new NamespacedKey("optitem", "cache_ref");
+    private static final NamespacedKey MINIMAL_KEY = new NamespacedKey("optitem", "cache_minimal");
+    private static final String NBT_KEY = "optitem:cache_ref";
+    private static final String NBT_MINIMAL_KEY = "optitem:cache_minimal";
+    private static final String NBT_CONTAINER = "PublicBukkitValues";
+
+    private final boolean legacyLookup;
+
+    CacheMarker(boolean legacyLookup) {
+        this.legacyLookup = legacyLookup;
+    }
+
+    /** The signature on {@code stack}, or {@code null} if it is not a placeholder. */
+    CacheKey read(ItemStack stack) {
+        if (stack == null || stack.getType() == Material.AIR || !stack.hasItemMeta()) {
+            return null;
+        }
+        try {
+            return NBT.get(stack, this::read);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private CacheKey read(ReadableNBT nbt) {
+        ReadableNBT values = nbt.getCompound(NBT_CONTAINER);
+        if (values != null && values.getType(NBT_KEY) == NBTType.NBTTagLongArray) {
+            long[] value = values.getLongArray(NBT_KEY);
+            if (value != null && value.length == 2) {
+                return CacheKey.of(value[0], value[1]);
+            }
+        }
+        if (legacyLookup && nbt.getType(LEGACY_KEY) == NBTType.NBTTagIntArray) {
+            return CacheKey.fromIntArray(nbt.getIntArray(LEGACY_KEY));
+        }
+        return null;
+    }
+
+    /** Marks {@code stack} in place and returns it; {@code minimal} flags a stack that holds nothing but the marker. */
+    ItemStack apply(ItemStack stack, CacheKey signature, boolean minimal) {
+        ItemMeta meta = stack.getItemMeta();
+        if (meta == null) {
+            return stack;
+        }
+        PersistentDataContainer container = meta.getPersistentDataContainer();
+        container.set(KEY, PersistentDataType.LONG_ARRAY, new long[] { signature.high(), signature.low() });
+        if (minimal) {
+            container.set(MINIMAL_KEY, PersistentDataType.BYTE, (byte) 1);
+        }
+        stack.setItemMeta(meta);
+        return stack;
+    }
+
+    /** Whether {@code stack} is a minimal placeholder, i.e. the cache entry is the only copy of its item data. */
+    boolean isMinimal(ItemStack stack) {
+        if (stack == null || !stack.hasItemMeta()) {
+            return false;
+        }
+        ItemMeta meta = stack.getItemMeta();
+        return meta != null && meta.getPersistentDataContainer().has(MINIMAL_KEY);
+    }
+
+    /** A copy of {@code stack} without the marker in either form. */
+    ItemStack remove(ItemStack stack) {
+        if (stack == null) {
+            return null;
+        }
+        ItemStack cleaned = stack.clone();
+        ItemMeta meta = cleaned.getItemMeta();
+        if (meta != null) {
+            PersistentDataContainer container = meta.getPersistentDataContainer();
+            if (container.has(KEY)) {
+                container.remove(KEY);
+                container.remove(MINIMAL_KEY);
+                cleaned.setItemMeta(meta);
+                return cleaned;
+            }
+        }
+        if (!legacyLookup) {
+            return cleaned;
+        }
+        try {
+            NBTItem nbtItem = new NBTItem(cleaned);
+            if (!nbtItem.hasTag(LEGACY_KEY)) {
+                return cleaned;
+            }
+            nbtItem.removeKey(LEGACY_KEY);
+            return nbtItem.getItem();
+        } catch (Exception ex) {
+            return cleaned;
+        }
+    }
+
+    /** Whether the item tag {@code nbt} carries a marker that can still be resolved, in either form. */
+    static boolean isPresent(ReadWriteNBT nbt) {
+        if (nbt.hasTag(LEGACY_KEY) && nbt.getType(LEGACY_KEY) == NBTType.NBTTagIntArray) {
+            return true;
+        }
+        ReadWriteNBT values = nbt.getCompound(NBT_CONTAINER);
+        return values != null && values.hasTag(NBT_KEY);
+    }
+
+    /**
+     * Removes the marker in any form, including the original int {@code CacheRef}, from an item tag that is being
+     * rebuilt through NBT-API anyway.
+     */
+    static void strip(ReadWriteNBT nbt) {
+        nbt.removeKey(LEGACY_KEY);
+        ReadWriteNBT values = nbt.getCompound(NBT_CONTAINER);
+        if (values != null && values.hasTag(NBT_KEY)) {
+            values.removeKey(NBT_KEY);
+            values.removeKey(NBT_MINIMAL_KEY);
+            if (values.getKeys().isEmpty()) {
+                nbt.removeKey(NBT_CONTAINER);
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.optitem.cache;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the spawn pipeline, the cache and the packet rewriter. Everything is
+ * lock-free to record from any thread; readers get a consistent-enough view for monitoring, not a snapshot.
+ */
+public final class CacheMetrics {
+
+    private final LongAdder spawnsQueued = new LongAdder();
+    private final LongAdder spawnsDropped = new LongAdder();
+    private final LongAdder spawnsCached = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder packetRewrites = new LongAdder();
+    private final LongAdder minimalViews = new LongAdder();
+    private final LongAdder viewUpgrades = new LongAdder();
+    private final LongAdder redundantItemsSkipped = new LongAdder();
+    private final LongAdder sweepCycles = new LongAdder();
+    private final LongAdder sweptEntries = new LongAdder();
+    private final LongAdder sweptBytes = new LongAdder();
+    private volatile long lastSweepEntries;
+    private volatile long lastSweepBytes;
+    private final ConcurrentMap<String, LongAdder> restores = new ConcurrentHashMap<>();
+    private final Histogram queueWait = new Histogram();
+    private final Histogram processing = new Histogram();
+    private final Histogram applyDelay = new Histogram();
+    private final RateMeter packetRewriteRate = new RateMeter();
+
+    void recordSpawnQueued() {
+        spawnsQueued.increment();
+    }
+
+    void recordSpawnDropped() {
+        spawnsDropped.increment();
+    }
+
+    void recordSpawnCached() {
+        spawnsCached.increment();
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    void recordSweepCycle(long entries, long bytes) {
+        sweepCycles.increment();
+        sweptEntries.add(entries);
+        sweptBytes.add(bytes);
+        lastSweepEntries = entries;
+        lastSweepBytes = bytes;
+    }
+
+    void recordRestore(String reason) {
+        restores.computeIfAbsent(reason, key -> new LongAdder()).increment();
+    }
+
+    public void recordPacketRewrites(int count) {
+        packetRewrites.add(count);
+        packetRewriteRate.record(count);
+    }
+
+    public void recordMinimalViews(int count) {
+        minimalViews.add(count);
+    }
+
+    public void recordViewUpgrade() {
+        viewUpgrades.increment();
+    }
+
+    public void recordRedundantItemsSkipped(int count) {
+        redundantItemsSkipped.add(count);
+    }
+
+    public long getSpawnsQueued() {
+        return spawnsQueued.sum();
+    }
+
+    public long getSpawnsDropped() {
+        return spawnsDropped.sum();
+    }
+
+    public long getSpawnsCached() {
+        return spawnsCached.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getSweepCycles() {
+        return sweepCycles.sum();
+    }
+
+    public long getSweptEntries() {
+        return sweptEntries.sum();
+    }
+
+    public long getSweptBytes() {
+        return sweptBytes.sum();
+    }
+
+    public long getLastSweepEntries() {
+        return lastSweepEntries;
+    }
+
+    public long getLastSweepBytes() {
+        return lastSweepBytes;
+    }
+
+    public long getPacketRewrites() {
+        return packetRewrites.sum();
+    }
+
+    public double getPacketRewritesPerSecond() {
+        return packetRewriteRate.perSecond();
+    }
+
+    public long getMinimalViews() {
+        return minimalViews.sum();
+    }
+
+    public long getViewUpgrades() {
+        return viewUpgrades.sum();
+    }
+
+    public long getRedundantItemsSkipped() {
+        return redundantItemsSkipped.sum();
+    }
+
+    public Map<String, Long> getRestoresByReason() {
+        Map<String, Long> counts = new TreeMap<>();
+        restores.forEach((reason, count) -> counts.put(reason, count.sum()));
+        return counts;
+    }
+
+    public Histogram getQueueWait() {
+        return queueWait;
+    }
+
+    public Histogram getProcessing() {
+        return processing;
+    }
+
+    public Histogram getApplyDelay() {
+        return applyDelay;
+    }
+
+    /**
+     * Latency histogram with power-of-two microsecond buckets from 1 µs up to about 2 s, plus an overflow bucket.
+     */
+    public static final class Histogram {
+
+        private static final int BUCKETS = 22;
+
+        private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+        private final LongAdder sumMicros = new LongAdder();
+
+        private Histogram() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            long micros = Math.max(0L, TimeUnit.NANOSECONDS.toMicros(nanos));
+            int bucket = micros == 0L ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            counts[Math.min(bucket, BUCKETS)].increment();
+            sumMicros.add(micros);
+        }
+
+        public int bucketCount() {
+            return counts.length;
+        }
+
+        /** Inclusive upper bound of {@code bucket} in microseconds, or {@link Long#MAX_VALUE} for the overflow. */
+        public long upperBoundMicros(int bucket) {
+            return bucket >= BUCKETS ? Long.MAX_VALUE : (1L << bucket) - 1L;
+        }
+
+        public long bucket(int bucket) {
+            return counts[bucket].sum();
+        }
+
+        public long count() {
+            long total = 0L;
+            for (LongAdder count : counts) {
+                total += count.sum();
+            }
+            return total;
+        }
+
+        public long sumMicros() {
+            return sumMicros.sum();
+        }
+
+        /** Upper bound of the bucket holding the {@code quantile} observation, in microseconds. */
+        public long quantileMicros(double quantile) {
+            long[] snapshot = new long[counts.length];
+            long total = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                snapshot[i] = counts[i].sum();
+                total += snapshot[i];
+            }
+            if (total == 0L) {
+                return 0L;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0L;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return upperBoundMicros(i);
+                }
+            }
+            return upperBoundMicros(BUCKETS);
+        }
+    }
+
+    /** Events per second over the last few complete seconds, kept in a small ring of per-second slots. */
+    private static final class RateMeter {
+
+        private static final int SLOTS = 8;
+        private static final int WINDOW_SECONDS = 5;
+
+        private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+        private final AtomicLongArray seconds = new AtomicLongArray(SLOTS);
+
+        void record(int events) {
+            long second = currentSecond();
+            int slot = (int) (second & (SLOTS - 1));
+            long owner = seconds.get(slot);
+            if (owner != second && seconds.compareAndSet(slot, owner, second)) {
+                counts.set(slot, 0L);
+            }
+            counts.addAndGet(slot, events);
+        }
+
+        double perSecond() {
+            long now = currentSecond();
+            long total = 0L;
+            for (long second = now - WINDOW_SECONDS; second < now; second++) {
+                int slot = (int) (second & (SLOTS - 1));
+                if (seconds.get(slot) == second) {
+                    total += counts.get(slot);
+                }
+            }
+            return total / (double) WINDOW_SECONDS;
+        }
+
+        private static long currentSecond() {
+            return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.optitem.cache;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+public final class CacheSettings {
+
+    private final long cleanupIntervalSeconds;
+    private final int maxShulkerNbtBytes;
+    private final double playerQuitRestoreRadius;
+    private final double clientLodDistance;
+    private final boolean verifyCacheKeys;
+    private final boolean minimalPlaceholders;
+    private final boolean minimalPlaceholdersRefused;
+    private final boolean placeholderDisplayName;
+    private final boolean legacyCacheRefLookup;
+    private final int workerThreads;
+    private final boolean virtualWorkerThreads;
+    private final int maxPendingSpawns;
+    private final long applyBudgetMicros;
+    private final long sweepBudgetMicros;
+    private final boolean persistentCache;
+    private final String persistentCacheFile;
+    private final int persistentCacheMaxBytes;
+    private final boolean offHeapSnapshots;
+    private final int offHeapMaxBytes;
+    private final long maxCacheBytes;
+    private final boolean metricsExport;
+    private final String metricsExportFile;
+    private final long metricsExportIntervalSeconds;
+    private final boolean debugLogging;
+
+    private CacheSettings(ConfigurationSection config) {
+        this.cleanupIntervalSeconds = Math.max(10L, config.getLong("cache-cleanup-interval-seconds", 60L));
+        this.maxShulkerNbtBytes = Math.max(1024, config.getInt("max-shulker-nbt-bytes", 200 * 1024));
+        this.playerQuitRestoreRadius = Math.max(0D, config.getDouble("player-quit-restore-radius", 32.0D));
+        this.clientLodDistance = Math.max(0D, config.getDouble("client-lod-distance", 0D));
+        this.verifyCacheKeys = config.getBoolean("verify-cache-keys", true);
+        this.placeholderDisplayName = config.getBoolean("placeholder-display-name", true);
+        this.legacyCacheRefLookup = config.getBoolean("legacy-cache-ref-lookup", false);
+        int configuredWorkers = config.getInt("worker-threads", 0);
+        this.workerThreads = configuredWorkers > 0 ? configuredWorkers
+                : Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 4));
+        this.virtualWorkerThreads = config.getBoolean("worker-virtual-threads", false);
+        this.maxPendingSpawns = Math.max(16, config.getInt("max-pending-spawns", 512));
+        this.applyBudgetMicros = Math.max(100L, config.getLong("apply-budget-micros", 2000L));
+        this.sweepBudgetMicros = Math.max(50L, config.getLong("sweep-budget-micros", 500L));
+        this.persistentCache = config.getBoolean("persistent-cache.enabled", false);
+        this.persistentCacheFile = config.getString("persistent-cache.file", "snapshots.seg");
+        this.persistentCacheMaxBytes = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(1L, config.getLong("persistent-cache.max-megabytes", 64L)) * 1024L * 1024L);
+        boolean minimalRequested = "minimal".equalsIgnoreCase(config.getString("placeholder-mode", "full"));
+        this.minimalPlaceholders = minimalRequested && persistentCache;
+        this.minimalPlaceholdersRefused = minimalRequested && !persistentCache;
+        this.offHeapSnapshots = "off-heap".equalsIgnoreCase(config.getString("snapshot-storage", "heap"));
+        this.offHeapMaxBytes = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(1L, config.getLong("off-heap-max-megabytes", 256L)) * 1024L * 1024L);
+        this.maxCacheBytes = Math.max(1L, config.getLong("max-cache-megabytes", 256L)) * 1024L * 1024L;
+        this.metricsExport = config.getBoolean("metrics-export.enabled", false);
+        this.metricsExportFile = config.getString("metrics-export.file", "metrics.prom");
+        this.metricsExportIntervalSeconds = Math.max(1L, config.getLong("metrics-export.interval-seconds", 15L));
+        this.debugLogging = config.getBoolean("debug-logging", false);
+    }
+
+    public static CacheSettings fromConfig(ConfigurationSection config) {
+        return new CacheSettings(config);
+    }
+
+    public long getCleanupIntervalSeconds() {
+        return cleanupIntervalSeconds;
+    }
+
+    public int getMaxShulkerNbtBytes() {
+        return maxShulkerNbtBytes;
+    }
+
+    public double getPlayerQuitRestoreRadius() {
+        return playerQuitRestoreRadius;
+    }
+
+    /** Distance beyond which viewers get the minimal client view; {@code 0} sends everyone the full view. */
+    public double getClientLodDistance() {
+        return clientLodDistance;
+    }
+
+    public boolean isVerifyCacheKeys() {
+        return verifyCacheKeys;
+    }
+
+    public boolean isMinimalPlaceholders() {
+        return minimalPlaceholders;
+    }
+
+    /**
+     * Whether {@code placeholder-mode: minimal} was configured but ignored. A minimal placeholder is the only copy
+     * of its item in the world, so the mode needs the persistent cache behind it.
+     */
+    public boolean isMinimalPlaceholdersRefused() {
+        return minimalPlaceholdersRefused;
+    }
+
+    public boolean isPlaceholderDisplayName() {
+        return placeholderDisplayName;
+    }
+
+    public boolean isLegacyCacheRefLookup() {
+        return legacyCacheRefLookup;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public boolean isVirtualWorkerThreads() {
+        return virtualWorkerThreads;
+    }
+
+    public int getMaxPendingSpawns() {
+        return maxPendingSpawns;
+    }
+
+    public long getApplyBudgetMicros() {
+        return applyBudgetMicros;
+    }
+
+    public long getSweepBudgetMicros() {
+        return sweepBudgetMicros;
+    }
+
+    public boolean isPersistentCache() {
+        return persistentCache;
+    }
+
+    public String getPersistentCacheFile() {
+        return persistentCacheFile;
+    }
+
+    public int getPersistentCacheMaxBytes() {
+        return persistentCacheMaxBytes;
+    }
+
+    public boolean isOffHeapSnapshots() {
+        return offHeapSnapshots;
+    }
+
+    public int getOffHeapMaxBytes() {
+        return offHeapMaxBytes;
+    }
+
+    public long getMaxCacheBytes() {
+        return maxCacheBytes;
+    }
+
+    public boolean isMetricsExport() {
+        return metricsExport;
+    }
+
+    public String getMetricsExportFile() {
+        return metricsExportFile;
+    }
+
+    public long getMetricsExportIntervalSeconds() {
+        return metricsExportIntervalSeconds;
+    }
+
+    public boolean isDebugLogging() {
+        return debugLogging;
+    }
+}
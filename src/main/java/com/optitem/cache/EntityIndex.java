@@ -0,0 +1,236 @@
+package com.optitem.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Open-addressing map from entity UUIDs to non-negative int handles. Keys are stored as their two longs in
+ * parallel arrays with linear probing and backward-shift deletion, so tracking an item costs no per-entry
+ * objects. Slots holding the same handle are also threaded into a doubly linked chain through two more int
+ * arrays, so {@link #keysWithValue} walks only the keys of one handle. All access is synchronized; callers are the
+ * main thread and the occasional async lookup.
+ */
+final class EntityIndex {
+
+    static final int NO_VALUE = -1;
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int NO_SLOT = -1;
+
+    private long[] mostBits;
+    private long[] leastBits;
+    private int[] values;
+    private int[] chainNext;
+    private int[] chainPrev;
+    private int[] chainHeads = new int[0];
+    private int mask;
+    private int size;
+
+    EntityIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    synchronized int get(UUID key) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        return slot < 0 ? NO_VALUE : values[slot];
+    }
+
+    /** Maps {@code key} to {@code value} and returns the previous handle, or {@link #NO_VALUE}. */
+    synchronized int put(UUID key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Handles must be non-negative: " + value);
+        }
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        int slot = slotFor(most, least);
+        while (values[slot] != NO_VALUE) {
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                int previous = values[slot];
+                if (previous != value) {
+                    unlink(slot);
+                    values[slot] = value;
+                    link(slot);
+                }
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        mostBits[slot] = most;
+        leastBits[slot] = least;
+        values[slot] = value;
+        link(slot);
+        if (++size * 3 > values.length * 2) {
+            resize(values.length << 1);
+        }
+        return NO_VALUE;
+    }
+
+    /** Removes {@code key} and returns the handle it was mapped to, or {@link #NO_VALUE}. */
+    synchronized int remove(UUID key) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (slot < 0) {
+            return NO_VALUE;
+        }
+        int previous = values[slot];
+        deleteSlot(slot);
+        return previous;
+    }
+
+    /** Removes {@code key} only while it still maps to {@code expected}. */
+    synchronized boolean remove(UUID key, int expected) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (slot < 0 || values[slot] != expected) {
+            return false;
+        }
+        deleteSlot(slot);
+        return true;
+    }
+
+    synchronized List<UUID> keysWithValue(int value) {
+        List<UUID> keys = new ArrayList<>();
+        if (value < 0 || value >= chainHeads.length) {
+            return keys;
+        }
+        for (int slot = chainHeads[value]; slot != NO_SLOT; slot = chainNext[slot]) {
+            keys.add(new UUID(mostBits[slot], leastBits[slot]));
+        }
+        return keys;
+    }
+
+    synchronized List<UUID> keys() {
+        List<UUID> keys = new ArrayList<>(size);
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != NO_VALUE) {
+                keys.add(new UUID(mostBits[slot], leastBits[slot]));
+            }
+        }
+        return keys;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void clear() {
+        allocate(MIN_CAPACITY);
+        chainHeads = new int[0];
+    }
+
+    private int find(long most, long least) {
+        int slot = slotFor(most, least);
+        while (values[slot] != NO_VALUE) {
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void deleteSlot(int slot) {
+        unlink(slot);
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (values[next] != NO_VALUE) {
+            int home = slotFor(mostBits[next], leastBits[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                move(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[hole] = NO_VALUE;
+        size--;
+        if (values.length > MIN_CAPACITY && size * 8 < values.length) {
+            resize(values.length >>> 1);
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (oldValues[slot] == NO_VALUE) {
+                continue;
+            }
+            int target = slotFor(oldMost[slot], oldLeast[slot]);
+            while (values[target] != NO_VALUE) {
+                target = (target + 1) & mask;
+            }
+            mostBits[target] = oldMost[slot];
+            leastBits[target] = oldLeast[slot];
+            values[target] = oldValues[slot];
+            link(target);
+            size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        values = new int[capacity];
+        chainNext = new int[capacity];
+        chainPrev = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        Arrays.fill(chainHeads, NO_SLOT);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void link(int slot) {
+        int value = values[slot];
+        if (value >= chainHeads.length) {
+            int oldLength = chainHeads.length;
+            chainHeads = Arrays.copyOf(chainHeads, Math.max(16, Math.max(value + 1, oldLength << 1)));
+            Arrays.fill(chainHeads, oldLength, chainHeads.length, NO_SLOT);
+        }
+        int head = chainHeads[value];
+        chainPrev[slot] = NO_SLOT;
+        chainNext[slot] = head;
+        if (head != NO_SLOT) {
+            chainPrev[head] = slot;
+        }
+        chainHeads[value] = slot;
+    }
+
+    private void unlink(int slot) {
+        int prev = chainPrev[slot];
+        int next = chainNext[slot];
+        if (prev != NO_SLOT) {
+            chainNext[prev] = next;
+        } else {
+            chainHeads[values[slot]] = next;
+        }
+        if (next != NO_SLOT) {
+            chainPrev[next] = prev;
+        }
+    }
+
+    /** Moves the entry in {@code from} to the empty slot {@code to}, keeping its chain neighbours pointing at it. */
+    private void move(int from, int to) {
+        mostBits[to] = mostBits[from];
+        leastBits[to] = leastBits[from];
+        values[to] = values[from];
+        int prev = chainPrev[from];
+        int next = chainNext[from];
+        chainPrev[to] = prev;
+        chainNext[to] = next;
+        if (prev != NO_SLOT) {
+            chainNext[prev] = to;
+        } else {
+            chainHeads[values[to]] = to;
+        }
+        if (next != NO_SLOT) {
+            chainPrev[next] = to;
+        }
+    }
+
+    private int slotFor(long most, long least) {
+        long hash = (most ^ Long.rotateLeft(least, 32)) * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
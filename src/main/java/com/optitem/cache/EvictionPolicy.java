@@ -0,0 +1,179 @@
+package com.optitem.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Byte-weighted W-TinyLFU bookkeeping for the NBT cache. New keys enter a small LRU window; keys leaving the
+ * window compete with the probation victim and only stay if the frequency sketch has seen them more often.
+ * Keys hit while on probation are promoted to the protected segment. The policy only tracks keys and weights;
+ * the caller evicts whatever {@link #insert} returns. Reads off the main thread go through {@link #recordRead},
+ * which never takes this policy's lock, and are replayed on the next insert or {@link #drainReads}.
+ * <p>
+ * Bytes shared between entries, such as the shulker sub-item pool, count toward the bound through
+ * {@link #setSharedWeight} but belong to no key. They only shrink once evictions release them, so an admission
+ * that the shared weight pushes over the bound can evict a little more than it strictly needs to.
+ */
+final class EvictionPolicy {
+
+    private static final double WINDOW_FRACTION = 0.01D;
+    private static final double PROTECTED_FRACTION = 0.80D;
+    private static final int EXPECTED_ENTRY_BYTES = 2048;
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final FrequencySketch sketch;
+    private final ReadBuffer reads = new ReadBuffer();
+    private final LinkedHashMap<CacheKey, Integer> window = new LinkedHashMap<>(16, 0.75F, true);
+    private final LinkedHashMap<CacheKey, Integer> probation = new LinkedHashMap<>(16, 0.75F, true);
+    private final LinkedHashMap<CacheKey, Integer> protectedSegment = new LinkedHashMap<>(16, 0.75F, true);
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+    private long sharedWeight;
+
+    EvictionPolicy(long maximumWeight) {
+        this.maximumWeight = Math.max(1L, maximumWeight);
+        this.windowMaximum = Math.max(1L, (long) (this.maximumWeight * WINDOW_FRACTION));
+        this.protectedMaximum = (long) ((this.maximumWeight - windowMaximum) * PROTECTED_FRACTION);
+        this.sketch = new FrequencySketch(this.maximumWeight / EXPECTED_ENTRY_BYTES);
+    }
+
+    synchronized List<CacheKey> insert(CacheKey key, int weight) {
+        reads.drainTo(this::applyRead);
+        sketch.increment(key);
+        if (window.containsKey(key) || probation.containsKey(key) || protectedSegment.containsKey(key)) {
+            touch(key);
+            return List.of();
+        }
+
+        window.put(key, weight);
+        windowWeight += weight;
+
+        List<CacheKey> evicted = new ArrayList<>(2);
+        CacheKey candidate = null;
+        while (windowWeight > windowMaximum && !window.isEmpty()) {
+            Map.Entry<CacheKey, Integer> eldest = pollEldest(window);
+            windowWeight -= eldest.getValue();
+            probation.put(eldest.getKey(), eldest.getValue());
+            probationWeight += eldest.getValue();
+            candidate = eldest.getKey();
+        }
+
+        while (weightedSize() > maximumWeight) {
+            CacheKey victim = eldestKey(probation);
+            if (victim == null) {
+                victim = eldestKey(protectedSegment);
+            }
+            if (victim == null) {
+                victim = eldestKey(window);
+            }
+            if (victim == null) {
+                break;
+            }
+            if (candidate != null && !candidate.equals(victim) && probation.containsKey(candidate)
+                    && sketch.frequency(candidate) <= sketch.frequency(victim)) {
+                victim = candidate;
+                candidate = null;
+            }
+            remove(victim);
+            evicted.add(victim);
+        }
+        return evicted;
+    }
+
+    synchronized void recordAccess(CacheKey key) {
+        applyRead(key);
+    }
+
+    /** Lock-free variant of {@link #recordAccess} for packet threads; the read may be dropped under contention. */
+    void recordRead(CacheKey key) {
+        reads.offer(key);
+    }
+
+    synchronized void drainReads() {
+        reads.drainTo(this::applyRead);
+    }
+
+    synchronized boolean remove(CacheKey key) {
+        Integer weight = window.remove(key);
+        if (weight != null) {
+            windowWeight -= weight;
+            return true;
+        }
+        weight = probation.remove(key);
+        if (weight != null) {
+            probationWeight -= weight;
+            return true;
+        }
+        weight = protectedSegment.remove(key);
+        if (weight != null) {
+            protectedWeight -= weight;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void setSharedWeight(long weight) {
+        sharedWeight = Math.max(0L, weight);
+    }
+
+    synchronized long weightedSize() {
+        return windowWeight + probationWeight + protectedWeight + sharedWeight;
+    }
+
+    long maximumWeight() {
+        return maximumWeight;
+    }
+
+    synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0L;
+        probationWeight = 0L;
+        protectedWeight = 0L;
+        sharedWeight = 0L;
+    }
+
+    private void applyRead(CacheKey key) {
+        sketch.increment(key);
+        touch(key);
+    }
+
+    private void touch(CacheKey key) {
+        if (window.get(key) != null || protectedSegment.get(key) != null) {
+            return;
+        }
+        Integer weight = probation.remove(key);
+        if (weight == null) {
+            return;
+        }
+        probationWeight -= weight;
+        protectedSegment.put(key, weight);
+        protectedWeight += weight;
+        while (protectedWeight > protectedMaximum && protectedSegment.size() > 1) {
+            Map.Entry<CacheKey, Integer> demoted = pollEldest(protectedSegment);
+            protectedWeight -= demoted.getValue();
+            probation.put(demoted.getKey(), demoted.getValue());
+            probationWeight += demoted.getValue();
+        }
+    }
+
+    private static CacheKey eldestKey(LinkedHashMap<CacheKey, Integer> segment) {
+        Iterator<CacheKey> keys = segment.keySet().iterator();
+        return keys.hasNext() ? keys.next() : null;
+    }
+
+    private static Map.Entry<CacheKey, Integer> pollEldest(LinkedHashMap<CacheKey, Integer> segment) {
+        Iterator<Map.Entry<CacheKey, Integer>> entries = segment.entrySet().iterator();
+        Map.Entry<CacheKey, Integer> eldest = entries.next();
+        Map.Entry<CacheKey, Integer> polled = Map.entry(eldest.getKey(), eldest.getValue());
+        entries.remove();
+        return polled;
+    }
+}
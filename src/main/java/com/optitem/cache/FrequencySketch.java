@@ -0,0 +1,69 @@
+package com.optitem.cache;
+
+/**
+ * Count-min sketch of 4-bit counters used to estimate how often a cache key has been seen. Counters are halved
+ * once the number of increments reaches ten times the table width, so old popularity fades out.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long expectedEntries) {
+        int width = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(64L, expectedEntries)) - 1) << 1;
+        this.table = new long[width];
+        this.tableMask = width - 1;
+        this.sampleSize = width * 10;
+    }
+
+    int frequency(CacheKey key) {
+        long hash = spread(key);
+        int frequency = Integer.MAX_VALUE;
+        for (int depth = 0; depth < SEEDS.length; depth++) {
+            long mixed = mix(hash, depth);
+            int index = (int) mixed & tableMask;
+            int shift = (int) ((mixed >>> 32) & 15) << 2;
+            frequency = Math.min(frequency, (int) ((table[index] >>> shift) & 15L));
+        }
+        return frequency;
+    }
+
+    void increment(CacheKey key) {
+        long hash = spread(key);
+        boolean added = false;
+        for (int depth = 0; depth < SEEDS.length; depth++) {
+            long mixed = mix(hash, depth);
+            int index = (int) mixed & tableMask;
+            int shift = (int) ((mixed >>> 32) & 15) << 2;
+            if (((table[index] >>> shift) & 15L) != 15L) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private static long spread(CacheKey key) {
+        return key.high() ^ Long.rotateLeft(key.low(), 29);
+    }
+
+    private static long mix(long hash, int depth) {
+        long mixed = (hash + SEEDS[depth]) * 0x9e3779b97f4a7c15L;
+        return mixed ^ (mixed >>> 29);
+    }
+}
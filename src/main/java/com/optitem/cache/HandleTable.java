@@ -0,0 +1,51 @@
+package com.optitem.cache;
+
+import java.util.Arrays;
+
+/**
+ * Dense table handing out small int handles for objects, reusing freed handles first. Lets primitive indexes
+ * refer to cache entries without holding their keys.
+ */
+final class HandleTable<T> {
+
+    private Object[] slots = new Object[64];
+    private int[] freeHandles = new int[16];
+    private int freeCount;
+    private int nextHandle;
+
+    synchronized int add(T value) {
+        int handle;
+        if (freeCount > 0) {
+            handle = freeHandles[--freeCount];
+        } else {
+            handle = nextHandle++;
+            if (handle == slots.length) {
+                slots = Arrays.copyOf(slots, slots.length << 1);
+            }
+        }
+        slots[handle] = value;
+        return handle;
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized T get(int handle) {
+        return handle >= 0 && handle < nextHandle ? (T) slots[handle] : null;
+    }
+
+    synchronized void remove(int handle) {
+        if (handle < 0 || handle >= nextHandle || slots[handle] == null) {
+            return;
+        }
+        slots[handle] = null;
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeHandles.length << 1);
+        }
+        freeHandles[freeCount++] = handle;
+    }
+
+    synchronized void clear() {
+        Arrays.fill(slots, null);
+        freeCount = 0;
+        nextHandle = 0;
+    }
+}
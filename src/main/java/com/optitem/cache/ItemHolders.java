@@ -0,0 +1,57 @@
+package com.optitem.cache;
+
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.ItemDisplay;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.inventory.EntityEquipment;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * The one cacheable item slot of each entity kind OptItem handles: dropped items, item frames, item displays and
+ * the helmet slot of armor stands, where player heads on display end up.
+ */
+final class ItemHolders {
+
+    private ItemHolders() {
+    }
+
+    static boolean isHolder(Entity entity) {
+        return entity instanceof Item || entity instanceof ItemFrame || entity instanceof ItemDisplay
+                || entity instanceof ArmorStand;
+    }
+
+    static ItemStack get(Entity entity) {
+        if (entity instanceof Item item) {
+            return item.getItemStack();
+        }
+        if (entity instanceof ItemFrame frame) {
+            return frame.getItem();
+        }
+        if (entity instanceof ItemDisplay display) {
+            return display.getItemStack();
+        }
+        if (entity instanceof ArmorStand stand) {
+            EntityEquipment equipment = stand.getEquipment();
+            return equipment == null ? null : equipment.getItem(EquipmentSlot.HEAD);
+        }
+        return null;
+    }
+
+    static void set(Entity entity, ItemStack stack) {
+        if (entity instanceof Item item) {
+            item.setItemStack(stack);
+        } else if (entity instanceof ItemFrame frame) {
+            frame.setItem(stack, false);
+        } else if (entity instanceof ItemDisplay display) {
+            display.setItemStack(stack);
+        } else if (entity instanceof ArmorStand stand) {
+            EntityEquipment equipment = stand.getEquipment();
+            if (equipment != null) {
+                equipment.setItem(EquipmentSlot.HEAD, stack, true);
+            }
+        }
+    }
+}
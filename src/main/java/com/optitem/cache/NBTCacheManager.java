@@ -2,8 +2,6 @@ package com.optitem.cache;
 
 import de.tr7zw.changeme.nbtapi.NBTContainer;
 import de.tr7zw.changeme.nbtapi.NBTItem;
-import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBT;
-import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBTList;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
@@ -18,165 +16,351 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.EntityEquipment;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitTask;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
-import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.TimeUnit;
-import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.io.IOException;
+import java.nio.file.Path;
 
 @SuppressWarnings("deprecation")
 public class NBTCacheManager {
 
-    private static final String CACHE_KEY = "CacheRef";
-    private static final List<String> PRIORITY_TRIM_KEYS = List.of(
-            "SkullOwner",
-            "EntityTag",
-            "BlockEntityTag",
-            "Enchantments",
-            "StoredEnchantments",
-            "AttributeModifiers",
-            "CustomModelData");
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
     private final JavaPlugin plugin;
     private final long cleanupIntervalSeconds;
     private final int maxShulkerNbtSizeBytes;
+    private final boolean verifyCacheKeys;
+    private final boolean minimalPlaceholders;
+    private final boolean placeholderDisplayName;
+    private final int workerThreads;
+    private final boolean virtualWorkerThreads;
+    private final long applyBudgetNanos;
+    private final long sweepBudgetNanos;
+    private final boolean persistentCache;
+    private final String persistentCacheFile;
+    private final int persistentCacheMaxBytes;
+    private final boolean offHeapSnapshots;
+    private final int offHeapMaxBytes;
     private final boolean debugLogging;
 
-    private final ConcurrentMap<Integer, CachedEntry> cache = new ConcurrentHashMap<>();
-    private final ConcurrentMap<UUID, Integer> entityIndex = new ConcurrentHashMap<>();
-    private final Queue<ItemSpawnRequest> pendingSpawnQueue = new ConcurrentLinkedQueue<>();
-    private final int asyncProcessBaseLimit = 25;
-    private final int asyncProcessBurstLimit = 150;
-    private final long asyncProcessTimeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(8);
-    private final AtomicInteger pendingSpawnCount = new AtomicInteger();
+    private final ConcurrentMap<CacheKey, CachedEntry> cache = new ConcurrentHashMap<>();
+    private final EvictionPolicy evictionPolicy;
+    private final ShulkerTrimmer shulkerTrimmer;
+    private final CacheMarker cacheMarker;
+    private final CacheMetrics metrics = new CacheMetrics();
+    private final HandleTable<CachedEntry> entryHandles = new HandleTable<>();
+    private final SubItemPool subItemPool = new SubItemPool();
+    private final EntityIndex entityIndex = new EntityIndex();
+    private final SpatialIndex spatialIndex = new SpatialIndex();
+    private final boolean[] shulkerMaterials = buildShulkerTable();
+    private final BlockingQueue<ItemSpawnRequest> pendingSpawnQueue;
+    private final Queue<Runnable> applyQueue = new ConcurrentLinkedQueue<>();
+    private final Map<Inventory, Set<Material>> dirtyInventories = new HashMap<>();
+    private final Map<LivingEntity, Set<Material>> dirtyEntities = new HashMap<>();
     private final AtomicBoolean acceptingWork = new AtomicBoolean(true);
-    private final int maxPendingSpawn = 512;
+    private final AtomicBoolean snapshotStoreFullWarned = new AtomicBoolean();
+    private final AtomicBoolean snapshotArenaFullWarned = new AtomicBoolean();
+    private final AtomicBoolean sweepRunning = new AtomicBoolean();
+    private final Set<CacheKey> reportedOrphans = ConcurrentHashMap.newKeySet();
+    private final Set<CacheKey> pendingAdmissions = ConcurrentHashMap.newKeySet();
     private final long cleanupGracePeriodNanos = TimeUnit.MILLISECONDS.toNanos(1500);
-
-    private BukkitTask cleanupTask;
-    private BukkitTask asyncWorkerTask;
-
-    public NBTCacheManager(JavaPlugin plugin, long cleanupIntervalSeconds, int maxShulkerNbtSizeBytes,
-            boolean debugLogging) {
+    private final long workerShutdownTimeoutMillis = 2000L;
+
+    private BukkitTask sweepTask;
+    private BukkitTask applyTask;
+    private boolean restoreFlushScheduled;
+    private ExecutorService spawnWorkers;
+    private volatile SnapshotStore snapshotStore;
+    private volatile SnapshotArena snapshotArena;
+    private Iterator<Map.Entry<CacheKey, CachedEntry>> sweepCursor;
+    private long nextSweepNanos;
+    private int sweepQueuedEntries;
+    private int sweepFreedEntries;
+    private long sweepFreedBytes;
+
+    public NBTCacheManager(JavaPlugin plugin, CacheSettings settings) {
         this.plugin = plugin;
-        this.cleanupIntervalSeconds = cleanupIntervalSeconds;
-        this.maxShulkerNbtSizeBytes = Math.max(1024, maxShulkerNbtSizeBytes);
-        this.debugLogging = debugLogging;
+        this.cleanupIntervalSeconds = settings.getCleanupIntervalSeconds();
+        this.maxShulkerNbtSizeBytes = Math.max(1024, settings.getMaxShulkerNbtBytes());
+        this.verifyCacheKeys = settings.isVerifyCacheKeys();
+        this.minimalPlaceholders = settings.isMinimalPlaceholders();
+        this.placeholderDisplayName = settings.isPlaceholderDisplayName();
+        this.workerThreads = settings.getWorkerThreads();
+        this.virtualWorkerThreads = settings.isVirtualWorkerThreads();
+        this.applyBudgetNanos = TimeUnit.MICROSECONDS.toNanos(settings.getApplyBudgetMicros());
+        this.sweepBudgetNanos = TimeUnit.MICROSECONDS.toNanos(settings.getSweepBudgetMicros());
+        this.persistentCache = settings.isPersistentCache();
+        this.persistentCacheFile = settings.getPersistentCacheFile();
+        this.persistentCacheMaxBytes = settings.getPersistentCacheMaxBytes();
+        this.offHeapSnapshots = settings.isOffHeapSnapshots();
+        this.offHeapMaxBytes = settings.getOffHeapMaxBytes();
+        this.debugLogging = settings.isDebugLogging();
+        this.pendingSpawnQueue = new ArrayBlockingQueue<>(settings.getMaxPendingSpawns());
+        this.evictionPolicy = new EvictionPolicy(settings.getMaxCacheBytes());
+        this.shulkerTrimmer = new ShulkerTrimmer(maxShulkerNbtSizeBytes);
+        this.cacheMarker = new CacheMarker(settings.isLegacyCacheRefLookup());
     }
 
     public void start() {
-        long intervalTicks = Math.max(20L, cleanupIntervalSeconds * 20L);
         acceptingWork.set(true);
-        pendingSpawnCount.set(0);
-        cleanupTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> cleanup("scheduled"), intervalTicks,
-                intervalTicks);
-        asyncWorkerTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::drainSpawnQueue,
-                1L, 1L);
+        if (persistentCache) {
+            openSnapshotStore();
+        }
+        if (offHeapSnapshots) {
+            openSnapshotArena();
+        }
+        nextSweepNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(cleanupIntervalSeconds);
+        sweepTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::sweepSlice, 1L, 1L);
+        applyTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::drainApplyQueue, 1L, 1L);
+        spawnWorkers = createSpawnWorkers();
+        for (int i = 0; i < workerThreads; i++) {
+            spawnWorkers.execute(this::runSpawnWorker);
+        }
     }
 
     public void shutdown() {
         acceptingWork.set(false);
-        pendingSpawnQueue.clear();
-        pendingSpawnCount.set(0);
-        if (cleanupTask != null) {
-            cleanupTask.cancel();
+        if (sweepTask != null) {
+            sweepTask.cancel();
         }
-        if (asyncWorkerTask != null) {
-            asyncWorkerTask.cancel();
+        if (applyTask != null) {
+            applyTask.cancel();
         }
+        stopSpawnWorkers();
+        applyQueue.clear();
+        dirtyInventories.clear();
+        dirtyEntities.clear();
+        restoreFlushScheduled = false;
         restoreTrackedItems("shutdown");
-        cleanup("shutdown");
+        for (CachedEntry entry : cache.values()) {
+            entry.release();
+        }
         cache.clear();
+        subItemPool.clear();
+        evictionPolicy.clear();
         entityIndex.clear();
+        entryHandles.clear();
+        spatialIndex.clear();
+        closeSnapshotStore();
+        snapshotArena = null;
     }
 
-    public void handleItemSpawn(Item item) {
-        ItemStack stack = item.getItemStack();
-        if (stack == null || stack.getType() == Material.AIR) {
-            return;
+    private void openSnapshotArena() {
+        try {
+            snapshotArena = new SnapshotArena(offHeapMaxBytes);
+            plugin.getLogger().info(String.format("Off-heap snapshot arena: %d bytes", snapshotArena.capacity()));
+        } catch (OutOfMemoryError | IllegalArgumentException ex) {
+            snapshotArena = null;
+            plugin.getLogger().warning("Could not reserve off-heap snapshot arena; keeping snapshots on heap: "
+                    + ex.getMessage());
         }
+    }
 
-        if (!acceptingWork.get()) {
+    private void openSnapshotStore() {
+        Path path = plugin.getDataFolder().toPath().resolve(persistentCacheFile);
+        try {
+            snapshotStore = SnapshotStore.open(path, persistentCacheMaxBytes);
+            plugin.getLogger().info(String.format(
+                    "Persistent cache %s: %d snapshots, %d/%d bytes used, %d bytes reclaimed by compaction",
+                    path.getFileName(), snapshotStore.size(), snapshotStore.usedBytes(), snapshotStore.capacity(),
+                    snapshotStore.reclaimedBytes()));
+        } catch (IOException | RuntimeException ex) {
+            snapshotStore = null;
+            plugin.getLogger().warning("Could not open persistent cache " + path + ": " + ex.getMessage());
+        }
+    }
+
+    private void closeSnapshotStore() {
+        SnapshotStore store = snapshotStore;
+        snapshotStore = null;
+        if (store == null) {
             return;
         }
+        try {
+            store.close();
+        } catch (IOException ex) {
+            plugin.getLogger().warning("Could not flush persistent cache: " + ex.getMessage());
+        }
+    }
 
-        ItemMeta meta = stack.getItemMeta();
-        boolean hasDisplayName = meta != null && meta.hasDisplayName();
-        boolean hasLore = meta != null && meta.hasLore();
-        boolean hasEnchantments = !stack.getEnchantments().isEmpty();
-        boolean isShulker = Tag.SHULKER_BOXES.isTagged(stack.getType());
+    public void handleItemSpawn(Item item) {
+        queueSpawn(item, item.getItemStack());
+    }
 
-        if (!hasDisplayName && !hasLore && !hasEnchantments && !isShulker) {
+    /**
+     * Picks up an item frame, item display, armor stand or dropped item that was spawned or loaded with its item
+     * already in place. Placeholders persisted with the entity are tracked again instead of being reprocessed.
+     */
+    public void handleHolderLoad(Entity entity) {
+        if (!ItemHolders.isHolder(entity) || entityIndex.get(entity.getUniqueId()) != EntityIndex.NO_VALUE) {
+            return;
+        }
+        ItemStack stack = ItemHolders.get(entity);
+        CacheKey signature = cacheMarker.read(stack);
+        if (signature == null) {
+            queueSpawn(entity, stack);
+            return;
+        }
+        CachedEntry entry = lookupEntry(signature);
+        if (entry == null) {
+            releaseOrphan(entity, stack, signature);
             return;
         }
+        if (entityIndex.put(entity.getUniqueId(), entry.handle) == EntityIndex.NO_VALUE) {
+            entry.addReference();
+        }
+        spatialIndex.track(entity.getUniqueId(), entity.getLocation());
+    }
 
-        if (pendingSpawnCount.incrementAndGet() > maxPendingSpawn) {
-            pendingSpawnCount.decrementAndGet();
+    /**
+     * Restores what a frame, display or armor stand holds before a player or another plugin acts on it. Callers
+     * hand it back to {@link #recacheHolder} once they know the holder keeps its item.
+     */
+    public void handleHolderInteract(Entity entity) {
+        if (!ItemHolders.isHolder(entity) || entity instanceof Item) {
             return;
         }
+        restoreHolder(entity, "interact");
+    }
 
-        ItemStack snapshot = stack.clone();
-        ItemSpawnRequest request = new ItemSpawnRequest(item.getUniqueId(), snapshot,
-                hasLore, isShulker, describeItem(stack));
-        pendingSpawnQueue.offer(request);
+    /** Caches whatever a restored holder holds on the next tick, after the action on it has played out. */
+    public void recacheHolder(Entity entity) {
+        if (!ItemHolders.isHolder(entity) || entity instanceof Item) {
+            return;
+        }
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (entity.isValid()) {
+                handleHolderLoad(entity);
+            }
+        });
     }
 
-    private void drainSpawnQueue() {
+    private void queueSpawn(Entity entity, ItemStack stack) {
+        if (stack == null || stack.getType() == Material.AIR) {
+            return;
+        }
+
         if (!acceptingWork.get()) {
             return;
         }
 
-        long start = System.nanoTime();
-        int queueSize = pendingSpawnCount.get();
-        int dynamicLimit = Math.min(asyncProcessBurstLimit,
-                Math.max(asyncProcessBaseLimit, queueSize / 2));
+        if (!stack.hasItemMeta()) {
+            return;
+        }
 
-        int processed = 0;
-        ItemSpawnRequest request;
-        while (acceptingWork.get() && processed < dynamicLimit && (request = pendingSpawnQueue.poll()) != null) {
-            releasePendingSlot();
-            processSpawnRequestAsync(request);
-            processed++;
-            if ((processed & 7) == 0 && System.nanoTime() - start >= asyncProcessTimeBudgetNanos) {
-                break;
+        boolean isShulker = isShulker(stack.getType());
+        boolean hasLore = false;
+        if (!isShulker) {
+            ItemMeta meta = stack.getItemMeta();
+            if (meta == null) {
+                return;
             }
+            hasLore = meta.hasLore();
+            if (!hasLore && !meta.hasDisplayName() && !meta.hasEnchants()) {
+                return;
+            }
+        }
+
+        if (pendingSpawnQueue.remainingCapacity() == 0) {
+            metrics.recordSpawnDropped();
+            return;
+        }
+
+        ItemStack snapshot = stack.clone();
+        ItemSpawnRequest request = new ItemSpawnRequest(entity.getUniqueId(), snapshot,
+                hasLore, isShulker, debugLogging ? describeItem(stack) : null);
+        if (pendingSpawnQueue.offer(request)) {
+            metrics.recordSpawnQueued();
+        } else {
+            metrics.recordSpawnDropped();
         }
+    }
 
-        if (!pendingSpawnQueue.isEmpty() && acceptingWork.get()) {
-            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, this::drainSpawnQueue);
+    private ExecutorService createSpawnWorkers() {
+        if (virtualWorkerThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("OptItem-worker-", 0).factory());
         }
+        AtomicInteger threadIds = new AtomicInteger();
+        return Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "OptItem-worker-" + threadIds.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    private void releasePendingSlot() {
-        int current = pendingSpawnCount.decrementAndGet();
-        if (current < 0) {
-            pendingSpawnCount.set(0);
+    private void runSpawnWorker() {
+        while (acceptingWork.get()) {
+            ItemSpawnRequest request;
+            try {
+                request = pendingSpawnQueue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            metrics.getQueueWait().record(System.nanoTime() - request.enqueuedNanos);
+            try {
+                processSpawnRequestAsync(request);
+            } catch (Exception ex) {
+                debug("Spawn worker failed on item %s: %s", request.entityId, ex.getMessage());
+            }
         }
     }
 
+    private void stopSpawnWorkers() {
+        pendingSpawnQueue.clear();
+        if (spawnWorkers == null) {
+            return;
+        }
+        spawnWorkers.shutdownNow();
+        try {
+            if (!spawnWorkers.awaitTermination(workerShutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                plugin.getLogger().warning("Spawn workers did not stop within " + workerShutdownTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        spawnWorkers = null;
+    }
+
     private void processSpawnRequestAsync(ItemSpawnRequest request) {
         if (!acceptingWork.get()) {
             return;
         }
+        long started = System.nanoTime();
         Optional<ProcessedItem> processed = buildProcessedItem(request);
+        long finished = System.nanoTime();
+        metrics.getProcessing().record(finished - started);
         if (processed.isPresent()) {
             ProcessedItem result = processed.get();
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
+            applyQueue.offer(() -> {
+                metrics.getApplyDelay().record(System.nanoTime() - finished);
                 try {
                     applyProcessedItem(result);
                 } catch (Exception ex) {
@@ -185,300 +369,458 @@ public class NBTCacheManager {
                 }
             });
         } else {
-            handleProcessingFailure(request);
+            applyQueue.offer(() -> handleProcessingFailure(request));
         }
     }
 
-    private void handleProcessingFailure(ItemSpawnRequest request) {
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            Entity entity = Bukkit.getEntity(request.entityId);
-            if (!(entity instanceof Item item)) {
-                return;
+    private void drainApplyQueue() {
+        evictionPolicy.drainReads();
+        if (applyQueue.isEmpty()) {
+            return;
+        }
+        long deadline = System.nanoTime() + applyBudgetNanos;
+        Runnable task;
+        while ((task = applyQueue.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                debug("Failed to apply queued spawn result: %s", ex.getMessage());
             }
-            ItemStack fallback = request.snapshot == null ? null : request.snapshot.clone();
-            if (fallback != null) {
-                item.setItemStack(fallback);
+            if (System.nanoTime() - deadline >= 0) {
+                break;
             }
-            removeReference(item.getUniqueId());
-        });
+        }
+    }
+
+    private void handleProcessingFailure(ItemSpawnRequest request) {
+        Entity entity = Bukkit.getEntity(request.entityId);
+        if (entity instanceof Item item && request.snapshot != null) {
+            item.setItemStack(request.snapshot.clone());
+        }
+        if (entity != null) {
+            removeReference(entity.getUniqueId());
+        }
     }
 
     private Optional<ProcessedItem> buildProcessedItem(ItemSpawnRequest request) {
         try {
             NBTItem nbtItem = new NBTItem(request.snapshot);
-            if (nbtItem.hasKey(CACHE_KEY)) {
+            if (CacheMarker.isPresent(nbtItem)) {
                 return Optional.empty();
             }
-
-            String initialSerialized = nbtItem.toString();
-            if (initialSerialized == null || initialSerialized.isEmpty()) {
-                return Optional.empty();
-            }
-
-            int initialSizeBytes = estimateSizeBytes(initialSerialized);
+            CacheMarker.strip(nbtItem);
 
             List<String> debugMessages = new ArrayList<>();
-            boolean sanitized = false;
-
-            if (request.shulker) {
-                if (initialSizeBytes > maxShulkerNbtSizeBytes) {
-                    sanitized = sanitizeShulkerItem(nbtItem, debugMessages, initialSizeBytes, request.description);
-                }
+            if (request.shulker && NbtSizer.exceeds(nbtItem, maxShulkerNbtSizeBytes)) {
+                sanitizeShulkerItem(nbtItem, debugMessages, request.description);
             }
 
             if (!request.hasLore && !nbtItem.hasNBTData()) {
                 return Optional.empty();
             }
 
-            String serialized = sanitized ? nbtItem.toString() : initialSerialized;
-            if (serialized == null || serialized.isEmpty()) {
-                return Optional.empty();
-            }
-
-            int signature = sum(serialized);
-            return Optional.of(new ProcessedItem(request, serialized, signature, sanitized, debugMessages));
+            byte[] snapshot = SnapshotCodec.encode(nbtItem);
+            CacheKey signature = CacheKey.hash(snapshot);
+            ShulkerSnapshot.Layout layout = request.shulker ? scanForPooling(snapshot) : null;
+            return Optional.of(new ProcessedItem(request, snapshot, signature, layout, debugMessages));
         } catch (Exception ex) {
             return Optional.empty();
         }
     }
 
-    private void applyProcessedItem(ProcessedItem processed) {
-        Entity entity = Bukkit.getEntity(processed.request.entityId);
-        if (!(entity instanceof Item item)) {
-            return;
+    /**
+     * Writes a snapshot to the persistent cache once a placeholder has to outlive the in-memory entry: a minimal
+     * placeholder as soon as it is made ({@code pinned}), a full one when its holder is unloaded or its entry evicted.
+     */
+    private boolean persistSnapshot(CacheKey signature, byte[] snapshot, boolean pinned) {
+        SnapshotStore store = snapshotStore;
+        if (store == null) {
+            return false;
         }
-
-        ItemStack base = item.getItemStack();
-        if (base == null || base.getType() == Material.AIR) {
-            return;
+        if (store.append(signature, snapshot, pinned)) {
+            return true;
         }
-
-        ItemStack sanitized = applySnapshotToTemplate(base, processed.serializedSnapshot);
-
-        CachedEntry entry = cache.compute(processed.signature,
-                (key, existing) -> existing == null ? new CachedEntry(processed.serializedSnapshot, sanitized)
-                        : existing);
-        if (entry == null) {
-            return;
+        if (pinned && snapshotStoreFullWarned.compareAndSet(false, true)) {
+            plugin.getLogger().warning(
+                    "Persistent cache is full until the next start compacts it; new placeholders stay full");
         }
+        return false;
+    }
 
-        entry.addReference(item.getUniqueId());
-        entityIndex.put(item.getUniqueId(), processed.signature);
-
-        if (processed.sanitized) {
-            item.setItemStack(sanitized.clone());
+    private boolean persistEntry(CacheKey signature) {
+        if (isPersisted(signature)) {
+            return true;
         }
+        CachedEntry entry = cache.get(signature);
+        byte[] snapshot = entry == null ? null : entry.snapshotBytes();
+        return snapshot != null && persistSnapshot(signature, snapshot, false);
+    }
 
-        ItemStack placeholder = createPlaceholderStack(sanitized, processed.signature);
-        item.setItemStack(placeholder);
-
-        if (!processed.debugMessages.isEmpty()) {
-            for (String message : processed.debugMessages) {
-                debug(message);
+    /**
+     * Finds the entry for {@code signature}, loading it from the persistent cache on a miss; hits count as accesses
+     * for eviction, buffered without locking when they come from a packet thread. Admitting a loaded entry can evict others, so off the main thread the snapshot is only handed
+     * back as a transient entry for rendering and admitted on the next tick.
+     */
+    private CachedEntry lookupEntry(CacheKey signature) {
+        if (signature == null) {
+            return null;
+        }
+        CachedEntry entry = cache.get(signature);
+        if (entry != null) {
+            metrics.recordCacheHit();
+            if (Bukkit.isPrimaryThread()) {
+                evictionPolicy.recordAccess(signature);
+            } else {
+                evictionPolicy.recordRead(signature);
+            }
+            return entry;
+        }
+        metrics.recordCacheMiss();
+        SnapshotStore store = snapshotStore;
+        if (store == null) {
+            return null;
+        }
+        byte[] snapshot = store.load(signature);
+        if (snapshot == null) {
+            return null;
+        }
+        if (!Bukkit.isPrimaryThread()) {
+            if (pendingAdmissions.add(signature)) {
+                applyQueue.offer(() -> {
+                    pendingAdmissions.remove(signature);
+                    lookupEntry(signature);
+                });
             }
+            return new CachedEntry(snapshot);
         }
+        boolean[] created = new boolean[1];
+        CachedEntry loaded = cache.computeIfAbsent(signature, key -> {
+            created[0] = true;
+            return createEntry(snapshot, scanForPooling(snapshot), true);
+        });
+        if (created[0]) {
+            admitEntry(signature, loaded);
+        }
+        return loaded;
     }
 
-    private boolean sanitizeShulkerItem(NBTItem nbtItem, List<String> debugMessages, int originalSize,
-            String description) {
-        boolean modified = sanitizeShulkerContents(nbtItem, debugMessages);
-        if (modified && description != null) {
-            debugMessages.add(String.format("Trimmed shulker NBT (%d bytes) for item %s", originalSize, description));
+    /** Main thread only, like every other admission or eviction. */
+    private List<CacheKey> admitEntry(CacheKey signature, CachedEntry entry) {
+        evictionPolicy.setSharedWeight(subItemPool.usedBytes());
+        List<CacheKey> evicted = evictionPolicy.insert(signature, entry.weight());
+        for (CacheKey victim : evicted) {
+            evictEntry(victim);
         }
-        return modified;
+        return evicted;
     }
 
-    private boolean sanitizeShulkerContents(NBTItem nbtItem, List<String> debugMessages) {
-        ReadWriteNBT blockEntity = nbtItem.getCompound("BlockEntityTag");
-        if (blockEntity == null) {
-            return false;
-        }
-        @SuppressWarnings("unchecked")
-        ReadWriteNBTList<ReadWriteNBT> items = (ReadWriteNBTList<ReadWriteNBT>) blockEntity.getCompoundList("Items");
-        if (items == null || items.isEmpty()) {
-            return false;
+    /**
+     * Restores the holders of an evicted entry and drops it. Holders that cannot be resolved right now would be left
+     * with a placeholder nothing can restore, so their entry is persisted first or, failing that, kept outside the
+     * size bound until the sweeper finds it unreferenced.
+     */
+    private void evictEntry(CacheKey signature) {
+        CachedEntry entry = cache.get(signature);
+        if (entry == null) {
+            return;
         }
-
-        boolean modified = false;
-        int adjusted = 0;
-        for (ReadWriteNBT itemCompound : items) {
-            if (itemCompound == null) {
-                continue;
+        List<UUID> holders = entityIndex.keysWithValue(entry.handle);
+        boolean persisted = isPersisted(signature);
+        if (!persisted && hasUnresolvedHolder(holders)) {
+            persisted = persistEntry(signature);
+            if (!persisted) {
+                debug("Kept evicted cache entry %s: some of its %d holders are not loaded", signature,
+                        holders.size());
+                return;
             }
-            if (trimLargestTag(itemCompound, debugMessages)) {
-                modified = true;
-                adjusted++;
+        }
+        int restored = 0;
+        for (UUID entityId : holders) {
+            Entity entity = Bukkit.getEntity(entityId);
+            if (!persisted && ItemHolders.isHolder(entity) && restoreHolder(entity, "evicted")) {
+                restored++;
+            } else {
+                removeReference(entityId, signature, entry);
             }
         }
-
-        if (modified) {
-            debugMessages.add(String.format("Sanitized contents of shulker box; %d slots adjusted", adjusted));
+        if (cache.remove(signature, entry)) {
+            discardEntry(entry);
         }
-        return modified;
+        evictionPolicy.remove(signature);
+        metrics.recordEviction();
+        debug("Evicted cache entry %s (%d bytes, %d items restored)", signature, entry.weight(), restored);
     }
 
-    private boolean trimLargestTag(ReadWriteNBT itemCompound, List<String> debugMessages) {
-        ReadWriteNBT tag = itemCompound.getCompound("tag");
-        if (tag == null) {
-            return false;
-        }
-        Set<String> keys = tag.getKeys();
-        if (keys.isEmpty()) {
-            return false;
+    private static boolean hasUnresolvedHolder(List<UUID> holders) {
+        for (UUID entityId : holders) {
+            if (!ItemHolders.isHolder(Bukkit.getEntity(entityId))) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        int originalSize = estimateSizeBytes(itemCompound.toString());
-        String targetKey = null;
-        int largestDelta = 0;
+    /**
+     * Shulker contents are pooled on heap, so with an off-heap arena shulkers are stored whole in the arena
+     * instead and not scanned at all.
+     */
+    private ShulkerSnapshot.Layout scanForPooling(byte[] snapshot) {
+        return snapshotArena == null ? ShulkerSnapshot.scan(snapshot) : null;
+    }
 
-        List<String> orderedCandidates = new ArrayList<>();
-        for (String priority : PRIORITY_TRIM_KEYS) {
-            if (keys.contains(priority)) {
-                orderedCandidates.add(priority);
-            }
-        }
-        if (orderedCandidates.isEmpty()) {
-            int inspected = 0;
-            for (String key : keys) {
-                orderedCandidates.add(key);
-                if (++inspected >= 3) {
-                    break;
+    private CachedEntry createEntry(byte[] snapshot, ShulkerSnapshot.Layout layout, boolean heapFallback) {
+        SnapshotArena arena = snapshotArena;
+        CachedEntry entry = null;
+        if (layout != null && arena == null) {
+            entry = new CachedEntry(ShulkerSnapshot.pool(snapshot, layout, subItemPool));
+        } else if (arena == null) {
+            entry = new CachedEntry(snapshot);
+        } else {
+            int offset = arena.allocate(snapshot);
+            if (offset >= 0) {
+                entry = new CachedEntry(arena, offset, snapshot.length);
+            } else {
+                if (snapshotArenaFullWarned.compareAndSet(false, true)) {
+                    plugin.getLogger().warning(
+                            "Off-heap snapshot arena is full; new items will not be cached until it drains");
+                }
+                if (heapFallback) {
+                    entry = new CachedEntry(snapshot);
                 }
             }
         }
+        if (entry != null) {
+            entry.handle = entryHandles.add(entry);
+        }
+        return entry;
+    }
 
-        for (String key : orderedCandidates) {
-            int delta = computeTagRemovalDelta(itemCompound, key, originalSize);
-            if (delta > largestDelta) {
-                largestDelta = delta;
-                targetKey = key;
-            }
+    private void discardEntry(CachedEntry entry) {
+        entry.release();
+        entryHandles.remove(entry.handle);
+        evictionPolicy.setSharedWeight(subItemPool.usedBytes());
+    }
+
+    private boolean isPersisted(CacheKey signature) {
+        SnapshotStore store = snapshotStore;
+        return store != null && store.contains(signature);
+    }
+
+    private void applyProcessedItem(ProcessedItem processed) {
+        Entity entity = Bukkit.getEntity(processed.request.entityId);
+        if (!ItemHolders.isHolder(entity)) {
+            return;
         }
 
-        if (targetKey == null || largestDelta <= 0) {
-            return false;
+        ItemStack base = ItemHolders.get(entity);
+        if (base == null || base.getType() == Material.AIR) {
+            return;
+        }
+        if (!(entity instanceof Item) && !base.isSimilar(processed.request.snapshot)) {
+            debug("Item held by %s changed while it was processed; leaving it uncached", entity.getUniqueId());
+            return;
         }
 
-        if ("display".equals(targetKey)) {
-            ReadWriteNBT display = tag.getCompound("display");
-            if (display != null) {
-                display.removeKey("Lore");
-                display.removeKey("Name");
-                if (display.getKeys().isEmpty()) {
-                    tag.removeKey("display");
-                }
+        boolean[] created = new boolean[1];
+        CachedEntry entry = cache.compute(processed.signature, (key, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            created[0] = true;
+            return createEntry(processed.snapshot, processed.layout, false);
+        });
+        if (entry == null) {
+            return;
+        }
+        if (created[0]) {
+            metrics.recordCacheMiss();
+            if (admitEntry(processed.signature, entry).contains(processed.signature)) {
+                debug("Cache admission rejected item %s (%d bytes)", processed.request.entityId, entry.weight());
+                return;
             }
         } else {
-            tag.removeKey(targetKey);
+            metrics.recordCacheHit();
+            evictionPolicy.recordAccess(processed.signature);
+        }
+        if (verifyCacheKeys && !entry.matches(processed.snapshot)) {
+            debug("Cache key collision on %s for item %s; leaving it uncached", processed.signature,
+                    processed.request.entityId);
+            return;
         }
 
-        if (tag.getKeys().isEmpty()) {
-            itemCompound.removeKey("tag");
+        int previous = entityIndex.put(entity.getUniqueId(), entry.handle);
+        if (previous != entry.handle) {
+            entry.addReference();
+            releaseHandle(previous);
         }
+        spatialIndex.track(entity.getUniqueId(), entity.getLocation());
 
-        debugMessages.add(String.format("Removed NBT tag '%s' from shulker content (%d bytes saved)", targetKey,
-                largestDelta));
-        return true;
-    }
+        ItemStack placeholder = minimalPlaceholders && persistSnapshot(processed.signature, processed.snapshot, true)
+                ? createMinimalPlaceholderStack(base, processed.signature)
+                : createPlaceholderStack(applySnapshotToTemplate(base, processed.snapshot), processed.signature);
+        ItemHolders.set(entity, placeholder);
+        metrics.recordSpawnCached();
 
-    private int computeTagRemovalDelta(ReadWriteNBT itemCompound, String key, int originalSize) {
-        try {
-            NBTContainer copy = new NBTContainer(itemCompound.toString());
-            ReadWriteNBT copyTag = copy.getCompound("tag");
-            if (copyTag == null) {
-                return 0;
-            }
-            if ("display".equals(key)) {
-                ReadWriteNBT display = copyTag.getCompound("display");
-                if (display == null) {
-                    return 0;
-                }
-                display.removeKey("Lore");
-                display.removeKey("Name");
-                if (display.getKeys().isEmpty()) {
-                    copyTag.removeKey("display");
-                }
-            } else {
-                if (!copyTag.getKeys().contains(key)) {
-                    return 0;
-                }
-                copyTag.removeKey(key);
-            }
-            if (copyTag.getKeys().isEmpty()) {
-                copy.removeKey("tag");
+        if (!processed.debugMessages.isEmpty()) {
+            for (String message : processed.debugMessages) {
+                debug(message);
             }
-            int newSize = estimateSizeBytes(copy.toString());
-            return originalSize - newSize;
-        } catch (Exception ex) {
-            return 0;
         }
     }
 
-    private ItemStack applySnapshotToTemplate(ItemStack template, String serialized) {
+    private boolean sanitizeShulkerItem(NBTItem nbtItem, List<String> debugMessages, String description) {
+        boolean modified = shulkerTrimmer.trim(nbtItem, debugMessages);
+        if (modified && description != null) {
+            debugMessages.add(String.format("Trimmed oversized shulker NBT for item %s", description));
+        }
+        return modified;
+    }
+
+    private ItemStack applySnapshotToTemplate(ItemStack template, byte[] snapshot) {
         if (template == null) {
             return null;
         }
         ItemStack merged = template.clone();
         try {
-            NBTContainer container = new NBTContainer(serialized);
+            NBTContainer container = SnapshotCodec.decode(snapshot);
             stripIdentityKeys(container);
             NBTItem nbtItem = new NBTItem(merged);
             nbtItem.mergeCompound(container);
-            nbtItem.removeKey(CACHE_KEY);
+            CacheMarker.strip(nbtItem);
             return nbtItem.getItem();
         } catch (Exception ex) {
             return merged;
         }
     }
 
-    private int estimateSizeBytes(String serialized) {
-        if (serialized == null || serialized.isEmpty()) {
-            return 0;
-        }
-        return serialized.getBytes(StandardCharsets.UTF_8).length;
-    }
-
     public Optional<ItemStack> handleAttemptPickup(Item item) {
-        if (restoreItem(item, "pickup")) {
+        if (restoreHolder(item, "pickup")) {
             return Optional.ofNullable(item.getItemStack());
         }
         return Optional.empty();
     }
 
     public void handleChunkUnload(Chunk chunk) {
-        List<Item> items = new ArrayList<>();
+        List<Entity> holders = new ArrayList<>();
         for (Entity entity : chunk.getEntities()) {
-            if (entity instanceof Item item) {
-                items.add(item);
+            if (ItemHolders.isHolder(entity)) {
+                holders.add(entity);
+            }
+        }
+        restoreHoldersBulk(holders, "chunk-unload", true);
+
+        for (UUID stale : List.copyOf(spatialIndex.inChunk(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ()))) {
+            Entity entity = Bukkit.getEntity(stale);
+            if (ItemHolders.isHolder(entity) && entity.isValid()) {
+                spatialIndex.track(stale, entity.getLocation());
+            } else {
+                removeReference(stale);
+            }
+        }
+    }
+
+    public void handleEntitiesUnload(List<Entity> entities) {
+        List<Entity> holders = new ArrayList<>();
+        for (Entity entity : entities) {
+            if (ItemHolders.isHolder(entity)) {
+                holders.add(entity);
             }
         }
-        restoreItemsBulk(items, "chunk-unload");
+        restoreHoldersBulk(holders, "entities-unload", true);
     }
 
-    public void handleEntityRemoval(Item item) {
-        removeReference(item.getUniqueId());
+    public void handleEntityRemoval(Entity entity) {
+        if (ItemHolders.isHolder(entity)) {
+            removeReference(entity.getUniqueId());
+        }
     }
 
-    public void ensureEntityItemsRestored(LivingEntity entity) {
+    /**
+     * Whether {@code source} may merge into {@code target}. Drops tracked against the same entry, the mob-farm
+     * case, are decided from the entity index alone; otherwise the placeholder signatures are read and stacks that
+     * disagree, including a placeholder and an uncached stack, are kept apart.
+     */
+    public boolean canMerge(Item source, Item target) {
+        if (entityIndex.get(source.getUniqueId()) == entityIndex.get(target.getUniqueId())) {
+            return true;
+        }
+        return Objects.equals(cacheMarker.read(source.getItemStack()), cacheMarker.read(target.getItemStack()));
+    }
+
+    /** Hands the merged-away drop's cache reference to the surviving one; no NBT is read or restored. */
+    public void handleItemMerge(Item source, Item target) {
+        UUID sourceId = source.getUniqueId();
+        spatialIndex.untrack(sourceId);
+        int handle = entityIndex.remove(sourceId);
+        if (handle == EntityIndex.NO_VALUE) {
+            return;
+        }
+        UUID targetId = target.getUniqueId();
+        int previous = entityIndex.put(targetId, handle);
+        if (previous == EntityIndex.NO_VALUE) {
+            spatialIndex.track(targetId, target.getLocation());
+        } else {
+            releaseHandle(previous);
+        }
+    }
+
+    /**
+     * Queues {@code entity}'s equipment (and inventory, for non-player humans) for restoration at the end of the
+     * tick. Only slots holding {@code type} are checked; {@code null} checks every slot.
+     */
+    public void ensureEntityItemsRestored(LivingEntity entity, Material type) {
         if (entity == null) {
             return;
         }
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
+        markDirty(dirtyEntities, entity, type);
+    }
+
+    /** Queues {@code inventory} for restoration at the end of the tick, like {@link #ensureEntityItemsRestored}. */
+    public void ensureInventoryRestored(Inventory inventory, Material type) {
+        if (inventory == null) {
+            return;
+        }
+        markDirty(dirtyInventories, inventory, type);
+    }
+
+    private <T> void markDirty(Map<T, Set<Material>> dirty, T holder, Material type) {
+        if (type == null) {
+            dirty.put(holder, null);
+        } else if (!dirty.containsKey(holder)) {
+            dirty.put(holder, EnumSet.of(type));
+        } else {
+            Set<Material> types = dirty.get(holder);
+            if (types != null) {
+                types.add(type);
+            }
+        }
+        if (!restoreFlushScheduled) {
+            restoreFlushScheduled = true;
+            plugin.getServer().getScheduler().runTask(plugin, this::flushDirtyHolders);
+        }
+    }
+
+    /** Scans every inventory and entity marked since the last flush once, however many pickups touched it. */
+    private void flushDirtyHolders() {
+        restoreFlushScheduled = false;
+        for (Map.Entry<Inventory, Set<Material>> dirty : dirtyInventories.entrySet()) {
+            restoreInventoryContents(dirty.getKey(), dirty.getValue());
+        }
+        dirtyInventories.clear();
+        for (Map.Entry<LivingEntity, Set<Material>> dirty : dirtyEntities.entrySet()) {
+            LivingEntity entity = dirty.getKey();
+            if (!entity.isValid()) {
+                continue;
+            }
             if (entity instanceof HumanEntity human && !(human instanceof Player)) {
-                restoreInventoryContents(human.getInventory());
+                restoreInventoryContents(human.getInventory(), dirty.getValue());
             }
             EntityEquipment equipment = entity.getEquipment();
             if (equipment != null) {
-                restoreEquipmentContents(equipment);
+                restoreEquipmentContents(equipment, dirty.getValue());
             }
-        });
-    }
-
-    public void ensureInventoryRestored(Inventory inventory) {
-        if (inventory == null) {
-            return;
         }
-        plugin.getServer().getScheduler().runTask(plugin, () -> restoreInventoryContents(inventory));
+        dirtyEntities.clear();
     }
 
     public void restoreItemsNear(Location location, double radius) {
@@ -487,19 +829,20 @@ public class NBTCacheManager {
         }
 
         double radiusSquared = radius * radius;
-        List<UUID> tracked = List.copyOf(entityIndex.keySet());
-        for (UUID uuid : tracked) {
+        for (UUID uuid : spatialIndex.near(location, radius)) {
             Entity entity = Bukkit.getEntity(uuid);
             if (!(entity instanceof Item item)) {
                 continue;
             }
+            Location itemLocation = item.getLocation();
+            spatialIndex.track(uuid, itemLocation);
             if (!item.getWorld().equals(location.getWorld())) {
                 continue;
             }
-            if (item.getLocation().distanceSquared(location) > radiusSquared) {
+            if (itemLocation.distanceSquared(location) > radiusSquared) {
                 continue;
             }
-            if (restoreItem(item, "player-quit")) {
+            if (restoreHolder(item, "player-quit")) {
                 debug("Restored cached item near player quit at %s", location);
             }
         }
@@ -510,26 +853,18 @@ public class NBTCacheManager {
             return original;
         }
 
-        Material type = original.getType();
-        if (!Tag.SHULKER_BOXES.isTagged(type)) {
+        if (!isShulker(original.getType())) {
             return original;
         }
 
         try {
-            ItemStack working = original.clone();
-            NBTItem nbtItem = new NBTItem(working);
-            String serialized = nbtItem.toString();
-            if (serialized == null) {
-                return original;
-            }
-
-            int size = estimateSizeBytes(serialized);
-            if (size <= maxShulkerNbtSizeBytes) {
+            if (!NbtSizer.exceeds(new NBTItem(original), maxShulkerNbtSizeBytes)) {
                 return original;
             }
 
+            NBTItem nbtItem = new NBTItem(original.clone());
             List<String> debugMessages = new ArrayList<>();
-            if (!sanitizeShulkerItem(nbtItem, debugMessages, size, describeItem(original))) {
+            if (!sanitizeShulkerItem(nbtItem, debugMessages, debugLogging ? describeItem(original) : null)) {
                 return original;
             }
 
@@ -545,179 +880,325 @@ public class NBTCacheManager {
         }
     }
 
-    private boolean restoreItem(Item item, String reason) {
-        ItemStack stack = item.getItemStack();
+    private boolean restoreHolder(Entity holder, String reason) {
+        ItemStack stack = ItemHolders.get(holder);
         if (stack == null || stack.getType() == Material.AIR) {
             return false;
         }
 
-        NBTItem nbtItem = new NBTItem(stack);
-        if (!nbtItem.hasKey(CACHE_KEY)) {
+        CacheKey signature = cacheMarker.read(stack);
+        if (signature == null) {
             return false;
         }
 
-        int signature = nbtItem.getInteger(CACHE_KEY);
-        CachedEntry entry = cache.get(signature);
+        CachedEntry entry = lookupEntry(signature);
         if (entry == null) {
-            item.setItemStack(removeCacheKey(stack));
-            removeReference(item.getUniqueId());
+            releaseOrphan(holder, stack, signature);
+            removeReference(holder.getUniqueId());
             return false;
         }
 
         Optional<ItemStack> restored = entry.createItemStack(stack);
         if (restored.isEmpty()) {
-            item.setItemStack(removeCacheKey(stack));
-            removeReference(item.getUniqueId(), signature, entry);
+            releaseOrphan(holder, stack, signature);
+            removeReference(holder.getUniqueId(), signature, entry);
             return false;
         }
 
         ItemStack restoredStack = restored.get();
-        item.setItemStack(restoredStack);
-        removeReference(item.getUniqueId(), signature, entry);
-        debug("Applied cached NBT to item %s (%s) for %s", item.getUniqueId(), describeItem(restoredStack), reason);
+        ItemHolders.set(holder, restoredStack);
+        removeReference(holder.getUniqueId(), signature, entry);
+        metrics.recordRestore(reason);
+        if (debugLogging) {
+            debug("Applied cached NBT to item %s (%s) for %s", holder.getUniqueId(), describeItem(restoredStack),
+                    reason);
+        }
 
         return true;
     }
 
+    /**
+     * Unmarks the placeholder {@code holder} is left with when its entry is gone. A full placeholder already is the
+     * item; a minimal one is all that is left of it, so it keeps its marker for a later restore from the persistent
+     * cache and the loss is logged once per signature.
+     */
+    private void releaseOrphan(Entity holder, ItemStack stack, CacheKey signature) {
+        ItemStack released = orphanedPlaceholder(stack, signature);
+        if (released != stack) {
+            ItemHolders.set(holder, released);
+        }
+    }
+
+    private ItemStack orphanedPlaceholder(ItemStack stack, CacheKey signature) {
+        if (!cacheMarker.isMinimal(stack)) {
+            return cacheMarker.remove(stack);
+        }
+        if (reportedOrphans.add(signature)) {
+            plugin.getLogger().warning(String.format(
+                    "No cached data for minimal placeholder %s (%s); leaving it marked so it can still be restored",
+                    signature, describeItem(stack)));
+        }
+        return stack;
+    }
+
     private void removeReference(UUID entityId) {
-        Integer key = entityIndex.remove(entityId);
-        if (key == null) {
+        spatialIndex.untrack(entityId);
+        releaseHandle(entityIndex.remove(entityId));
+    }
+
+    private void removeReference(UUID entityId, CacheKey signature, CachedEntry entry) {
+        if (signature == null || entry == null) {
+            removeReference(entityId);
             return;
         }
-        CachedEntry entry = cache.get(key);
-        if (entry != null) {
-            entry.removeReference(entityId);
+        if (entityIndex.remove(entityId, entry.handle)) {
+            spatialIndex.untrack(entityId);
+            entry.removeReference();
         }
     }
 
-    private void removeReference(UUID entityId, int signature, CachedEntry entry) {
-        entityIndex.remove(entityId, signature);
+    private void releaseHandle(int handle) {
+        if (handle == EntityIndex.NO_VALUE) {
+            return;
+        }
+        CachedEntry entry = entryHandles.get(handle);
         if (entry != null) {
-            entry.removeReference(entityId);
+            entry.removeReference();
         }
     }
 
-    private ItemStack createPlaceholderStack(ItemStack original, int signature) {
+    private ItemStack createPlaceholderStack(ItemStack original, CacheKey signature) {
         ItemStack placeholder = original == null ? null : original.clone();
         if (placeholder == null) {
             return null;
         }
 
-        NBTItem nbtItem = new NBTItem(placeholder);
-        nbtItem.setInteger(CACHE_KEY, signature);
-        return nbtItem.getItem();
+        return cacheMarker.apply(placeholder, signature, false);
+    }
+
+    private ItemStack createMinimalPlaceholderStack(ItemStack original, CacheKey signature) {
+        ItemStack placeholder = new ItemStack(original.getType(), original.getAmount());
+        if (placeholderDisplayName) {
+            ItemMeta meta = original.getItemMeta();
+            if (meta != null && meta.hasDisplayName()) {
+                ItemMeta stub = placeholder.getItemMeta();
+                if (stub != null) {
+                    stub.setDisplayName(meta.getDisplayName());
+                    placeholder.setItemMeta(stub);
+                }
+            }
+        }
+        return cacheMarker.apply(placeholder, signature, true);
+    }
+
+    private static ItemStack createMinimalClientStack(ItemStack full) {
+        ItemStack minimal = new ItemStack(full.getType(), full.getAmount());
+        ItemMeta meta = full.getItemMeta();
+        if (meta == null || !meta.hasEnchants()) {
+            return minimal;
+        }
+        ItemMeta glint = minimal.getItemMeta();
+        if (glint != null) {
+            glint.addEnchant(meta.getEnchants().keySet().iterator().next(), 1, true);
+            glint.addItemFlags(ItemFlag.HIDE_ENCHANTS);
+            minimal.setItemMeta(glint);
+        }
+        return minimal;
+    }
+
+    /**
+     * Runs one budgeted slice of the unreferenced-entry sweep. A cycle starts every cleanup interval and walks the
+     * cache through a cursor that survives between ticks on an async timer. It only picks candidates: the main
+     * thread hands out references to existing entries, so the removal itself is queued there and re-checked by
+     * {@link #removeIfUnused}.
+     */
+    private void sweepSlice() {
+        if (!sweepRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            if (sweepCursor == null) {
+                if (now - nextSweepNanos < 0) {
+                    return;
+                }
+                sweepCursor = cache.entrySet().iterator();
+                sweepQueuedEntries = 0;
+            }
+
+            long deadline = now + sweepBudgetNanos;
+            long cutoff = now - cleanupGracePeriodNanos;
+            int visited = 0;
+            while (sweepCursor.hasNext()) {
+                Map.Entry<CacheKey, CachedEntry> entry = sweepCursor.next();
+                CachedEntry cached = entry.getValue();
+                if (cached.readyForCleanup(cutoff)) {
+                    CacheKey signature = entry.getKey();
+                    applyQueue.offer(() -> removeIfUnused(signature, cached));
+                    sweepQueuedEntries++;
+                }
+                if ((++visited & 63) == 0 && System.nanoTime() - deadline >= 0) {
+                    return;
+                }
+            }
+
+            sweepCursor = null;
+            nextSweepNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(cleanupIntervalSeconds);
+            int candidates = sweepQueuedEntries;
+            applyQueue.offer(() -> finishSweepCycle(candidates));
+        } finally {
+            sweepRunning.set(false);
+        }
+    }
+
+    /** Drops a sweep candidate on the main thread, unless something picked it up since it was queued. */
+    private void removeIfUnused(CacheKey signature, CachedEntry entry) {
+        if (!entry.readyForCleanup(System.nanoTime() - cleanupGracePeriodNanos) || !cache.remove(signature, entry)) {
+            return;
+        }
+        evictionPolicy.remove(signature);
+        discardEntry(entry);
+        sweepFreedEntries++;
+        sweepFreedBytes += entry.snapshotLength;
     }
 
-    private void cleanup(String reason) {
-        long cutoff = System.nanoTime() - cleanupGracePeriodNanos;
-        cache.entrySet().removeIf(entry -> entry.getValue().readyForCleanup(cutoff));
+    /** Queued behind a cycle's removals, so it reports what the cycle actually freed. */
+    private void finishSweepCycle(int candidates) {
+        metrics.recordSweepCycle(sweepFreedEntries, sweepFreedBytes);
+        if (sweepFreedEntries > 0) {
+            plugin.getLogger().info(String.format("Cache sweep freed %d unreferenced entries (%d bytes), %d cached",
+                    sweepFreedEntries, sweepFreedBytes, cache.size()));
+        }
+        debug("Cache sweep found %d candidates, %d were picked up again before removal", candidates,
+                candidates - sweepFreedEntries);
+        sweepFreedEntries = 0;
+        sweepFreedBytes = 0L;
     }
 
     public void restoreTrackedItems(String reason) {
-        List<Item> items = new ArrayList<>();
-        List<UUID> tracked = List.copyOf(entityIndex.keySet());
+        List<Entity> holders = new ArrayList<>();
+        List<UUID> tracked = entityIndex.keys();
         for (UUID uuid : tracked) {
             Entity entity = Bukkit.getEntity(uuid);
-            if (entity instanceof Item item) {
-                items.add(item);
+            if (ItemHolders.isHolder(entity)) {
+                holders.add(entity);
             }
         }
-        restoreItemsBulk(items, reason);
+        restoreHoldersBulk(holders, reason, true);
     }
 
-    private void restoreItemsBulk(List<Item> items, String reason) {
-        if (items == null || items.isEmpty()) {
+    private void restoreHoldersBulk(List<Entity> holders, String reason, boolean keepPersisted) {
+        if (holders == null || holders.isEmpty()) {
             return;
         }
 
-        HashMap<Integer, List<Item>> buckets = new HashMap<>();
-        for (Item item : items) {
-            if (item == null) {
+        HashMap<CacheKey, List<Entity>> buckets = new HashMap<>();
+        for (Entity holder : holders) {
+            if (holder == null) {
                 continue;
             }
-            ItemStack stack = item.getItemStack();
+            ItemStack stack = ItemHolders.get(holder);
             if (stack == null || stack.getType() == Material.AIR) {
                 continue;
             }
-            try {
-                NBTItem nbtItem = new NBTItem(stack);
-                if (!nbtItem.hasKey(CACHE_KEY)) {
-                    continue;
-                }
-                int signature = nbtItem.getInteger(CACHE_KEY);
-                buckets.computeIfAbsent(signature, key -> new ArrayList<>()).add(item);
-            } catch (Exception ex) {
-                item.setItemStack(removeCacheKey(stack));
-                removeReference(item.getUniqueId());
+            CacheKey signature = cacheMarker.read(stack);
+            if (signature != null) {
+                buckets.computeIfAbsent(signature, key -> new ArrayList<>()).add(holder);
             }
         }
 
-        for (Map.Entry<Integer, List<Item>> entry : buckets.entrySet()) {
-            int signature = entry.getKey();
-            CachedEntry cached = cache.get(signature);
+        for (Map.Entry<CacheKey, List<Entity>> entry : buckets.entrySet()) {
+            CacheKey signature = entry.getKey();
+            if (keepPersisted && persistEntry(signature)) {
+                for (Entity holder : entry.getValue()) {
+                    removeReference(holder.getUniqueId(), signature, cache.get(signature));
+                }
+                continue;
+            }
+
+            CachedEntry cached = lookupEntry(signature);
             if (cached == null) {
-                for (Item item : entry.getValue()) {
-                    ItemStack stack = item.getItemStack();
-                    item.setItemStack(removeCacheKey(stack));
-                    removeReference(item.getUniqueId(), signature, null);
+                for (Entity holder : entry.getValue()) {
+                    releaseOrphan(holder, ItemHolders.get(holder), signature);
+                    removeReference(holder.getUniqueId(), signature, null);
                 }
                 continue;
             }
 
-            for (Item item : entry.getValue()) {
-                ItemStack stack = item.getItemStack();
+            for (Entity holder : entry.getValue()) {
+                ItemStack stack = ItemHolders.get(holder);
                 if (stack == null || stack.getType() == Material.AIR) {
-                    removeReference(item.getUniqueId(), signature, cached);
+                    removeReference(holder.getUniqueId(), signature, cached);
                     continue;
                 }
 
                 Optional<ItemStack> restored = cached.createItemStack(stack);
                 if (restored.isEmpty()) {
-                    item.setItemStack(removeCacheKey(stack));
-                    removeReference(item.getUniqueId(), signature, cached);
+                    releaseOrphan(holder, stack, signature);
+                    removeReference(holder.getUniqueId(), signature, cached);
                     continue;
                 }
 
                 ItemStack restoredStack = restored.get();
-                item.setItemStack(restoredStack);
-                removeReference(item.getUniqueId(), signature, cached);
-                debug("Applied cached NBT to item %s (%s) for %s", item.getUniqueId(), describeItem(restoredStack),
-                        reason);
+                ItemHolders.set(holder, restoredStack);
+                removeReference(holder.getUniqueId(), signature, cached);
+                metrics.recordRestore(reason);
+                if (debugLogging) {
+                    debug("Applied cached NBT to item %s (%s) for %s", holder.getUniqueId(),
+                            describeItem(restoredStack), reason);
+                }
             }
         }
     }
 
-    private void restoreEquipmentContents(EntityEquipment equipment) {
+    private void restoreEquipmentContents(EntityEquipment equipment, Set<Material> types) {
         for (EquipmentSlot slot : EquipmentSlot.values()) {
             ItemStack slotStack = equipment.getItem(slot);
-            restoreStack(slotStack).ifPresent(restored -> equipment.setItem(slot, restored));
+            if (!mayHoldPlaceholder(slotStack, types)) {
+                continue;
+            }
+            restoreStack(slotStack).ifPresent(restored -> {
+                equipment.setItem(slot, restored);
+                metrics.recordRestore("equipment");
+            });
         }
     }
 
-    private void restoreInventoryContents(Inventory inventory) {
+    private void restoreInventoryContents(Inventory inventory, Set<Material> types) {
         int size = inventory.getSize();
         for (int index = 0; index < size; index++) {
             int slotIndex = index;
             ItemStack slotStack = inventory.getItem(slotIndex);
-            restoreStack(slotStack).ifPresent(restored -> inventory.setItem(slotIndex, restored));
+            if (!mayHoldPlaceholder(slotStack, types)) {
+                continue;
+            }
+            restoreStack(slotStack).ifPresent(restored -> {
+                inventory.setItem(slotIndex, restored);
+                metrics.recordRestore("inventory");
+            });
         }
     }
 
+    /** Cheap pre-check before {@link #restoreStack}: placeholders always carry a tag, and only marked types count. */
+    private static boolean mayHoldPlaceholder(ItemStack stack, Set<Material> types) {
+        return stack != null && stack.getType() != Material.AIR && (types == null || types.contains(stack.getType()))
+                && stack.hasItemMeta();
+    }
+
     private Optional<ItemStack> restoreStack(ItemStack stack) {
         if (stack == null || stack.getType() == Material.AIR) {
             return Optional.empty();
         }
         try {
-            NBTItem nbtItem = new NBTItem(stack);
-            if (!nbtItem.hasKey(CACHE_KEY)) {
+            CacheKey signature = cacheMarker.read(stack);
+            if (signature == null) {
                 return Optional.empty();
             }
 
-            int signature = nbtItem.getInteger(CACHE_KEY);
-            CachedEntry entry = cache.get(signature);
+            CachedEntry entry = lookupEntry(signature);
             if (entry == null) {
-                nbtItem.removeKey(CACHE_KEY);
-                return Optional.of(nbtItem.getItem());
+                ItemStack released = orphanedPlaceholder(stack, signature);
+                return released == stack ? Optional.empty() : Optional.of(released);
             }
 
             return entry.createItemStack(stack);
@@ -732,14 +1213,13 @@ public class NBTCacheManager {
         }
 
         try {
-            ItemStack template = placeholder.clone();
-            NBTItem nbtItem = new NBTItem(template);
-            if (!nbtItem.hasKey(CACHE_KEY)) {
+            CacheKey signature = cacheMarker.read(placeholder);
+            if (signature == null) {
                 return Optional.empty();
             }
 
-            int signature = nbtItem.getInteger(CACHE_KEY);
-            CachedEntry entry = cache.get(signature);
+            ItemStack template = placeholder.clone();
+            CachedEntry entry = lookupEntry(signature);
             if (entry == null) {
                 return Optional.empty();
             }
@@ -750,6 +1230,81 @@ public class NBTCacheManager {
         }
     }
 
+    /** The cache signature a placeholder refers to, or {@code null} if {@code stack} is not one. */
+    public CacheKey signatureOf(ItemStack stack) {
+        try {
+            return cacheMarker.read(stack);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    public Optional<Object> resolveClientView(ItemStack placeholder, Function<ItemStack, Object> renderer) {
+        return resolveClientView(placeholder, signatureOf(placeholder), renderer, false);
+    }
+
+    /**
+     * Renders the client view of a placeholder whose signature the caller already read, cached per entry. A
+     * {@code minimal} view carries only the material, amount and enchantment glint of the cached item, for viewers
+     * too far away to see more. The returned object is shared by every packet carrying the same view: callers
+     * place it into packets as-is and must never mutate it.
+     */
+    public Optional<Object> resolveClientView(ItemStack placeholder, CacheKey signature,
+            Function<ItemStack, Object> renderer, boolean minimal) {
+        if (placeholder == null || signature == null || placeholder.getType() == Material.AIR) {
+            return Optional.empty();
+        }
+
+        try {
+            CachedEntry entry = lookupEntry(signature);
+            if (entry == null) {
+                return Optional.empty();
+            }
+
+            return Optional.ofNullable(entry.clientView(placeholder, renderer, minimal));
+        } catch (Exception ex) {
+            return Optional.empty();
+        }
+    }
+
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Point-in-time gauges for the stats command and exporter; safe to call from any thread. */
+    public Map<String, Long> getGauges() {
+        long snapshotBytes = 0L;
+        long savedBytes = 0L;
+        long references = 0L;
+        for (CachedEntry entry : cache.values()) {
+            int referenceCount = entry.references.get();
+            snapshotBytes += entry.snapshotLength;
+            references += referenceCount;
+            if (referenceCount > 1) {
+                savedBytes += (long) (referenceCount - 1) * entry.snapshotLength;
+            }
+        }
+        SnapshotStore store = snapshotStore;
+        SnapshotArena arena = snapshotArena;
+        Map<String, Long> gauges = new LinkedHashMap<>();
+        gauges.put("spawn_queue_depth", (long) pendingSpawnQueue.size());
+        gauges.put("spawn_queue_capacity", (long) (pendingSpawnQueue.size() + pendingSpawnQueue.remainingCapacity()));
+        gauges.put("apply_queue_depth", (long) applyQueue.size());
+        gauges.put("cache_entries", (long) cache.size());
+        gauges.put("cache_references", references);
+        gauges.put("cache_snapshot_bytes", snapshotBytes);
+        gauges.put("cache_bytes_saved", savedBytes);
+        gauges.put("cache_weight_bytes", evictionPolicy.weightedSize());
+        gauges.put("cache_max_weight_bytes", evictionPolicy.maximumWeight());
+        gauges.put("tracked_items", (long) entityIndex.size());
+        gauges.put("pooled_sub_items", (long) subItemPool.size());
+        gauges.put("pooled_sub_item_bytes", subItemPool.usedBytes());
+        gauges.put("persisted_entries", store == null ? 0L : store.size());
+        gauges.put("persisted_bytes", store == null ? 0L : store.usedBytes());
+        gauges.put("off_heap_used_bytes", arena == null ? 0L : arena.usedBytes());
+        return gauges;
+    }
+
     public boolean isDebugLogging() {
         return debugLogging;
     }
@@ -774,15 +1329,16 @@ public class NBTCacheManager {
         return base;
     }
 
-    private static int sum(String s) {
-        int cursor = 0;
-        for (int i = 0; i < s.length(); i++) {
-            int ch = s.charAt(i);
-            int shifted = cursor << 5;
-            int mixed = shifted - cursor;
-            cursor = mixed + ch;
+    private boolean isShulker(Material type) {
+        return shulkerMaterials[type.ordinal()];
+    }
+
+    private static boolean[] buildShulkerTable() {
+        boolean[] table = new boolean[Material.values().length];
+        for (Material material : Tag.SHULKER_BOXES.getValues()) {
+            table[material.ordinal()] = true;
         }
-        return cursor;
+        return table;
     }
 
     private static void stripIdentityKeys(NBTContainer container) {
@@ -795,30 +1351,13 @@ public class NBTCacheManager {
         container.removeKey("Count");
     }
 
-    private ItemStack removeCacheKey(ItemStack stack) {
-        if (stack == null) {
-            return null;
-        }
-        try {
-            NBTItem nbtItem = new NBTItem(stack.clone());
-            nbtItem.removeKey(CACHE_KEY);
-            return nbtItem.getItem();
-        } catch (Exception ex) {
-            return stack;
-        }
-    }
-
-    private static <T> Set<T> createConcurrentSet() {
-        ConcurrentMap<T, Boolean> backing = new ConcurrentHashMap<>();
-        return Collections.newSetFromMap(backing);
-    }
-
     private static final class ItemSpawnRequest {
         private final UUID entityId;
         private final ItemStack snapshot;
         private final boolean hasLore;
         private final boolean shulker;
         private final String description;
+        private final long enqueuedNanos = System.nanoTime();
 
         private ItemSpawnRequest(UUID entityId, ItemStack snapshot, boolean hasLore, boolean shulker,
                 String description) {
@@ -832,51 +1371,118 @@ public class NBTCacheManager {
 
     private static final class ProcessedItem {
         private final ItemSpawnRequest request;
-        private final String serializedSnapshot;
-        private final int signature;
-        private final boolean sanitized;
+        private final byte[] snapshot;
+        private final CacheKey signature;
+        private final ShulkerSnapshot.Layout layout;
         private final List<String> debugMessages;
 
-        private ProcessedItem(ItemSpawnRequest request, String serializedSnapshot, int signature, boolean sanitized,
-                List<String> debugMessages) {
+        private ProcessedItem(ItemSpawnRequest request, byte[] snapshot, CacheKey signature,
+                ShulkerSnapshot.Layout layout, List<String> debugMessages) {
             this.request = request;
-            this.serializedSnapshot = serializedSnapshot;
+            this.snapshot = snapshot;
             this.signature = signature;
-            this.sanitized = sanitized;
+            this.layout = layout;
             this.debugMessages = debugMessages;
         }
     }
 
     private static final class CachedEntry {
-        private final String nbtSnapshot;
-        private final Set<UUID> references = createConcurrentSet();
+        private final byte[] snapshot;
+        private final ShulkerSnapshot shulker;
+        private final SnapshotArena arena;
+        private final int arenaOffset;
+        private final int snapshotLength;
+        private final AtomicInteger references = new AtomicInteger();
+        private final ConcurrentMap<Long, Object> clientViews = new ConcurrentHashMap<>();
         private final AtomicLong lastTouched = new AtomicLong(System.nanoTime());
+        private int handle = EntityIndex.NO_VALUE;
+        private boolean released;
+
+        private CachedEntry(byte[] snapshot) {
+            this.snapshot = snapshot;
+            this.shulker = null;
+            this.arena = null;
+            this.arenaOffset = -1;
+            this.snapshotLength = snapshot.length;
+        }
+
+        private CachedEntry(ShulkerSnapshot shulker) {
+            this.snapshot = null;
+            this.shulker = shulker;
+            this.arena = null;
+            this.arenaOffset = -1;
+            this.snapshotLength = shulker.length();
+        }
 
-        private CachedEntry(String nbtSnapshot, ItemStack prototype) {
-            this.nbtSnapshot = nbtSnapshot;
+        private CachedEntry(SnapshotArena arena, int arenaOffset, int snapshotLength) {
+            this.snapshot = null;
+            this.shulker = null;
+            this.arena = arena;
+            this.arenaOffset = arenaOffset;
+            this.snapshotLength = snapshotLength;
         }
 
-        private void addReference(UUID uuid) {
-            references.add(uuid);
+        private byte[] snapshotBytes() {
+            if (shulker != null) {
+                return shulker.join();
+            }
+            if (arena == null) {
+                return snapshot;
+            }
+            synchronized (arena) {
+                return released ? null : arena.read(arenaOffset, snapshotLength);
+            }
+        }
+
+        private void release() {
+            clientViews.clear();
+            if (shulker != null) {
+                shulker.release();
+            }
+            if (arena == null) {
+                return;
+            }
+            synchronized (arena) {
+                if (!released) {
+                    released = true;
+                    arena.free(arenaOffset, snapshotLength);
+                }
+            }
+        }
+
+        private void addReference() {
+            references.incrementAndGet();
             markAccess();
         }
 
-        private void removeReference(UUID uuid) {
-            references.remove(uuid);
+        private void removeReference() {
+            references.updateAndGet(count -> Math.max(0, count - 1));
             markAccess();
         }
 
+        private int weight() {
+            return (shulker != null ? shulker.weight() : snapshotLength) + ENTRY_OVERHEAD_BYTES;
+        }
+
+        private boolean matches(byte[] candidate) {
+            return Arrays.equals(snapshotBytes(), candidate);
+        }
+
         private Optional<ItemStack> createItemStack(ItemStack baseTemplate) {
             if (baseTemplate == null) {
                 return Optional.empty();
             }
+            byte[] bytes = snapshotBytes();
+            if (bytes == null) {
+                return Optional.empty();
+            }
             try {
-                NBTContainer container = new NBTContainer(nbtSnapshot);
+                NBTContainer container = SnapshotCodec.decode(bytes);
                 stripIdentityKeys(container);
                 ItemStack base = baseTemplate.clone();
                 NBTItem reconstructed = new NBTItem(base);
                 reconstructed.mergeCompound(container);
-                reconstructed.removeKey(CACHE_KEY);
+                CacheMarker.strip(reconstructed);
                 ItemStack stack = reconstructed.getItem();
                 markAccess();
                 return Optional.of(stack);
@@ -885,12 +1491,36 @@ public class NBTCacheManager {
             }
         }
 
+        /**
+         * Renders outside any map lock so concurrent packet threads never wait on one another's NMS conversion; if
+         * two race on the same view, the first one stored wins and the other render is dropped.
+         */
+        private Object clientView(ItemStack template, Function<ItemStack, Object> renderer, boolean minimal) {
+            long viewKey = ((long) template.getType().ordinal() << 32) | (template.getAmount() & 0xFFFFFFFFL);
+            if (minimal) {
+                viewKey |= Long.MIN_VALUE;
+            }
+            Object view = clientViews.get(viewKey);
+            if (view != null) {
+                return view;
+            }
+            view = createItemStack(template)
+                    .map(full -> minimal ? createMinimalClientStack(full) : full)
+                    .map(renderer)
+                    .orElse(null);
+            if (view == null) {
+                return null;
+            }
+            Object existing = clientViews.putIfAbsent(viewKey, view);
+            return existing != null ? existing : view;
+        }
+
         private void markAccess() {
             lastTouched.set(System.nanoTime());
         }
 
         private boolean readyForCleanup(long cutoffNanos) {
-            return references.isEmpty() && lastTouched.get() < cutoffNanos;
+            return references.get() == 0 && lastTouched.get() < cutoffNanos;
         }
     }
 }
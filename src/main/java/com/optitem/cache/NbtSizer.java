@@ -0,0 +1,141 @@
+package com.optitem.cache;
+
+import de.tr7zw.changeme.nbtapi.NBTType;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBTCompoundList;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBTList;
+
+import java.util.Set;
+
+/**
+ * Computes how many bytes vanilla binary NBT spends on a compound or a single entry, by walking the tree instead of
+ * serializing it. That is what the client and the chunk file receive, so it is the unit of the shulker budget, not
+ * the smaller {@link SnapshotCodec} output. List shapes NBT-API cannot read are counted as an empty list. The
+ * bounded variants stop as soon as the running total passes the limit, so checking a budget costs only as much of
+ * the tree as it takes to exceed it.
+ */
+final class NbtSizer {
+
+    private static final int END_TAG_BYTES = 1;
+    private static final int ENTRY_HEADER_BYTES = 1 + 2;
+    private static final int STRING_HEADER_BYTES = 2;
+    private static final int ARRAY_HEADER_BYTES = 4;
+    private static final int LIST_HEADER_BYTES = 1 + 4;
+
+    private NbtSizer() {
+    }
+
+    static long compoundSize(ReadWriteNBT compound) {
+        return compoundSize(compound, Long.MAX_VALUE);
+    }
+
+    /** Whether the NBT size of {@code compound} is above {@code limit}. */
+    static boolean exceeds(ReadWriteNBT compound, long limit) {
+        return compoundSize(compound, limit) > limit;
+    }
+
+    /**
+     * NBT size of {@code compound}'s payload, or any value above {@code limit} once the walk has seen enough to know
+     * the size exceeds it.
+     */
+    static long compoundSize(ReadWriteNBT compound, long limit) {
+        Set<String> keys = compound.getKeys();
+        long size = END_TAG_BYTES;
+        for (String key : keys) {
+            size += entrySize(compound, key, limit - size);
+            if (size > limit) {
+                return size;
+            }
+        }
+        return size;
+    }
+
+    /** Bytes spent on {@code key} inside {@code compound}: tag id, key and value. */
+    static long entrySize(ReadWriteNBT compound, String key) {
+        return entrySize(compound, key, Long.MAX_VALUE);
+    }
+
+    private static long entrySize(ReadWriteNBT compound, String key, long limit) {
+        long header = ENTRY_HEADER_BYTES + modifiedUtf8Length(key);
+        return header + valueSize(compound, key, compound.getType(key), limit - header);
+    }
+
+    private static long valueSize(ReadWriteNBT compound, String key, NBTType type, long limit) {
+        if (type == null) {
+            return 0L;
+        }
+        return switch (type) {
+            case NBTTagByte -> 1L;
+            case NBTTagShort -> 2L;
+            case NBTTagInt, NBTTagFloat -> 4L;
+            case NBTTagLong, NBTTagDouble -> 8L;
+            case NBTTagString -> stringSize(compound.getString(key));
+            case NBTTagByteArray -> ARRAY_HEADER_BYTES + (long) compound.getByteArray(key).length;
+            case NBTTagIntArray -> ARRAY_HEADER_BYTES + 4L * compound.getIntArray(key).length;
+            case NBTTagLongArray -> ARRAY_HEADER_BYTES + 8L * compound.getLongArray(key).length;
+            case NBTTagCompound -> compoundSize(compound.getCompound(key), limit);
+            case NBTTagList -> listSize(compound, key, limit);
+            default -> 0L;
+        };
+    }
+
+    private static long listSize(ReadWriteNBT compound, String key, long limit) {
+        NBTType elementType = compound.getListType(key);
+        if (elementType == null) {
+            return LIST_HEADER_BYTES;
+        }
+        long size = LIST_HEADER_BYTES;
+        switch (elementType) {
+            case NBTTagCompound -> {
+                ReadWriteNBTCompoundList list = compound.getCompoundList(key);
+                for (ReadWriteNBT element : list) {
+                    size += compoundSize(element, limit - size);
+                    if (size > limit) {
+                        return size;
+                    }
+                }
+            }
+            case NBTTagString -> {
+                ReadWriteNBTList<String> list = compound.getStringList(key);
+                for (String element : list) {
+                    size += stringSize(element);
+                    if (size > limit) {
+                        return size;
+                    }
+                }
+            }
+            case NBTTagInt -> size += 4L * compound.getIntegerList(key).size();
+            case NBTTagLong -> size += 8L * compound.getLongList(key).size();
+            case NBTTagFloat -> size += 4L * compound.getFloatList(key).size();
+            case NBTTagDouble -> size += 8L * compound.getDoubleList(key).size();
+            case NBTTagIntArray -> {
+                ReadWriteNBTList<int[]> list = compound.getIntArrayList(key);
+                for (int[] element : list) {
+                    size += ARRAY_HEADER_BYTES + 4L * element.length;
+                }
+            }
+            default -> {
+            }
+        }
+        return size;
+    }
+
+    static long stringSize(String value) {
+        return STRING_HEADER_BYTES + modifiedUtf8Length(value);
+    }
+
+    /** Length of {@code value} in the modified UTF-8 that NBT strings use: NUL takes two bytes, surrogates three. */
+    static int modifiedUtf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x800) {
+                bytes += 2;
+            } else if (c >= 0x80 || c == 0) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+}
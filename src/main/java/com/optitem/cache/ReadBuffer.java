@@ -0,0 +1,38 @@
+package com.optitem.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Lossy, striped buffer of cache reads made off the main thread. Readers write into the stripe picked by their
+ * thread without locking and overwrite the oldest slot when it is full; the main thread replays whatever is left into
+ * the eviction policy. Dropped reads only make the policy's recency and frequency estimates a little coarser.
+ */
+final class ReadBuffer {
+
+    private static final int STRIPES = Integer.highestOneBit(
+            Math.max(1, Math.min(16, Runtime.getRuntime().availableProcessors())) * 2 - 1);
+    private static final int STRIPE_SIZE = 32;
+
+    private final AtomicReferenceArray<CacheKey> slots = new AtomicReferenceArray<>(STRIPES * STRIPE_SIZE);
+    private final AtomicLongArray writes = new AtomicLongArray(STRIPES);
+
+    void offer(CacheKey key) {
+        int stripe = (int) (Thread.currentThread().threadId() * 0x9E3779B9L >>> 16) & (STRIPES - 1);
+        int slot = (int) (writes.getAndIncrement(stripe) & (STRIPE_SIZE - 1));
+        slots.lazySet(stripe * STRIPE_SIZE + slot, key);
+    }
+
+    void drainTo(Consumer<CacheKey> consumer) {
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) == null) {
+                continue;
+            }
+            CacheKey key = slots.getAndSet(i, null);
+            if (key != null) {
+                consumer.accept(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.optitem.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A shulker snapshot split into the bytes around its {@code BlockEntityTag.Items} list and pooled references to the
+ * items inside it. Items are pooled without their {@code Slot} byte, so the same pickaxe in slot 3 of one box and
+ * slot 17 of another is stored once; {@link #join()} splices slots and items back in and returns the original
+ * snapshot byte for byte.
+ */
+final class ShulkerSnapshot {
+
+    private static final int REFERENCE_BYTES = 16;
+    private static final byte[] SLOT_KEY = "Slot".getBytes(StandardCharsets.UTF_8);
+
+    private final SubItemPool pool;
+    private final byte[] shell;
+    private final int itemsOffset;
+    private final int length;
+    private final SubItemPool.SubItem[] items;
+    private final byte[] slots;
+    private final int[] slotOffsets;
+    private final long privateBytes;
+    private boolean released;
+
+    private ShulkerSnapshot(SubItemPool pool, byte[] shell, int itemsOffset, int length,
+            SubItemPool.SubItem[] items, byte[] slots, int[] slotOffsets, long privateBytes) {
+        this.pool = pool;
+        this.shell = shell;
+        this.itemsOffset = itemsOffset;
+        this.length = length;
+        this.items = items;
+        this.slots = slots;
+        this.slotOffsets = slotOffsets;
+        this.privateBytes = privateBytes;
+    }
+
+    /**
+     * Locates the contained items of a binary shulker snapshot and cuts each into a slot-free payload. Pure, so it
+     * can run on a spawn worker.
+     *
+     * @return the layout, or {@code null} if the snapshot holds no items list
+     */
+    static Layout scan(byte[] snapshot) {
+        if (snapshot.length == 0 || snapshot[0] != SnapshotCodec.FORMAT_BINARY) {
+            return null;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(snapshot);
+            in.position(1);
+            if (!seek(in, "BlockEntityTag", SnapshotCodec.TAG_COMPOUND) || !seek(in, "Items", SnapshotCodec.TAG_LIST)
+                    || (in.get() & 0xFF) != SnapshotCodec.TAG_COMPOUND) {
+                return null;
+            }
+            int count = SnapshotCodec.readVarInt(in);
+            Layout layout = new Layout(snapshot.length, in.position(), count);
+            for (int i = 0; i < count; i++) {
+                scanItem(in, snapshot, layout, i);
+            }
+            layout.itemsEnd = in.position();
+            return layout;
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /** Moves the payloads in {@code layout} into {@code pool} and keeps only the surrounding bytes of {@code snapshot}. */
+    static ShulkerSnapshot pool(byte[] snapshot, Layout layout, SubItemPool pool) {
+        byte[] shell = new byte[snapshot.length - (layout.itemsEnd - layout.itemsStart)];
+        System.arraycopy(snapshot, 0, shell, 0, layout.itemsStart);
+        System.arraycopy(snapshot, layout.itemsEnd, shell, layout.itemsStart, snapshot.length - layout.itemsEnd);
+
+        SubItemPool.SubItem[] items = new SubItemPool.SubItem[layout.payloads.length];
+        long privateBytes = 0L;
+        for (int i = 0; i < items.length; i++) {
+            items[i] = pool.acquire(layout.keys[i], layout.payloads[i]);
+            if (!items[i].pooled()) {
+                privateBytes += layout.payloads[i].length;
+            }
+        }
+        return new ShulkerSnapshot(pool, shell, layout.itemsStart, layout.length, items, layout.slots,
+                layout.slotOffsets, privateBytes);
+    }
+
+    byte[] join() {
+        SnapshotCodec.ByteSink sink = new SnapshotCodec.ByteSink(length);
+        sink.writeBytes(shell, 0, itemsOffset);
+        for (int i = 0; i < items.length; i++) {
+            byte[] payload = items[i].payload();
+            int slotOffset = slotOffsets[i];
+            if (slotOffset < 0) {
+                sink.writeBytes(payload);
+                continue;
+            }
+            ByteBuffer in = ByteBuffer.wrap(payload);
+            sink.writeVarInt(SnapshotCodec.readVarInt(in) + 1);
+            sink.writeBytes(payload, in.position(), slotOffset - in.position());
+            sink.writeByte(SnapshotCodec.TAG_BYTE);
+            sink.writeVarInt(SLOT_KEY.length);
+            sink.writeBytes(SLOT_KEY);
+            sink.writeByte(slots[i]);
+            sink.writeBytes(payload, slotOffset, payload.length - slotOffset);
+        }
+        sink.writeBytes(shell, itemsOffset, shell.length - itemsOffset);
+        return sink.toByteArray();
+    }
+
+    synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        for (SubItemPool.SubItem item : items) {
+            pool.release(item);
+        }
+    }
+
+    /**
+     * Heap this snapshot is charged for: its shell, its references and any payloads that collided in the pool.
+     * Pooled payloads outlive the snapshot that brought them in, so the pool is charged for them as a whole.
+     */
+    int weight() {
+        return (int) Math.min(Integer.MAX_VALUE, shell.length + (long) items.length * REFERENCE_BYTES + privateBytes);
+    }
+
+    int length() {
+        return length;
+    }
+
+    private static boolean seek(ByteBuffer in, String key, int tagId) {
+        int count = SnapshotCodec.readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            int entryId = in.get() & 0xFF;
+            String name = SnapshotCodec.readString(in);
+            if (entryId == tagId && key.equals(name)) {
+                return true;
+            }
+            SnapshotCodec.skipValue(in, entryId);
+        }
+        return false;
+    }
+
+    private static void scanItem(ByteBuffer in, byte[] snapshot, Layout layout, int index) {
+        int start = in.position();
+        int count = SnapshotCodec.readVarInt(in);
+        int bodyStart = in.position();
+        int slotStart = -1;
+        int slotEnd = -1;
+        byte slot = 0;
+        for (int i = 0; i < count; i++) {
+            int entryStart = in.position();
+            int entryId = in.get() & 0xFF;
+            String name = SnapshotCodec.readString(in);
+            if (entryId == SnapshotCodec.TAG_BYTE && slotStart < 0 && name.equals("Slot")) {
+                slot = in.get();
+                slotStart = entryStart;
+                slotEnd = in.position();
+            } else {
+                SnapshotCodec.skipValue(in, entryId);
+            }
+        }
+        int end = in.position();
+
+        byte[] payload;
+        if (slotStart < 0) {
+            payload = Arrays.copyOfRange(snapshot, start, end);
+            layout.slotOffsets[index] = -1;
+        } else {
+            SnapshotCodec.ByteSink sink = new SnapshotCodec.ByteSink(end - start);
+            sink.writeVarInt(count - 1);
+            layout.slotOffsets[index] = sink.size() + slotStart - bodyStart;
+            sink.writeBytes(snapshot, bodyStart, slotStart - bodyStart);
+            sink.writeBytes(snapshot, slotEnd, end - slotEnd);
+            payload = sink.toByteArray();
+            layout.slots[index] = slot;
+        }
+        layout.payloads[index] = payload;
+        layout.keys[index] = CacheKey.hash(payload);
+    }
+
+    /** Where a snapshot's items sit and what they pool as, computed before any pool is touched. */
+    static final class Layout {
+        private final int length;
+        private final int itemsStart;
+        private int itemsEnd;
+        private final byte[][] payloads;
+        private final CacheKey[] keys;
+        private final byte[] slots;
+        private final int[] slotOffsets;
+
+        private Layout(int length, int itemsStart, int count) {
+            this.length = length;
+            this.itemsStart = itemsStart;
+            this.payloads = new byte[count][];
+            this.keys = new CacheKey[count];
+            this.slots = new byte[count];
+            this.slotOffsets = new int[count];
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.optitem.cache;
+
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBTCompoundList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Brings an oversized shulker box under its byte budget in one pass. Every tag on every contained item is sized
+ * once with {@link NbtSizer}; tags are then removed largest first until the box fits. {@code display} only loses
+ * its name and lore, as before.
+ */
+final class ShulkerTrimmer {
+
+    private final long maxBytes;
+
+    ShulkerTrimmer(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Trims the items inside {@code root}'s {@code BlockEntityTag} until the NBT size of {@code root} is within
+     * budget, or nothing removable is left.
+     *
+     * @return whether anything was removed
+     */
+    boolean trim(ReadWriteNBT root, List<String> debugMessages) {
+        long size = NbtSizer.compoundSize(root);
+        if (size <= maxBytes) {
+            return false;
+        }
+        ReadWriteNBT blockEntity = root.getCompound("BlockEntityTag");
+        if (blockEntity == null) {
+            return false;
+        }
+        ReadWriteNBTCompoundList items = blockEntity.getCompoundList("Items");
+        if (items == null || items.isEmpty()) {
+            return false;
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (ReadWriteNBT item : items) {
+            ReadWriteNBT tag = item == null ? null : item.getCompound("tag");
+            if (tag == null) {
+                continue;
+            }
+            for (String key : tag.getKeys()) {
+                long yield = "display".equals(key) ? displayYield(tag.getCompound("display"))
+                        : NbtSizer.entrySize(tag, key);
+                if (yield > 0L) {
+                    candidates.add(new Candidate(item, tag, key, yield));
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingLong((Candidate candidate) -> candidate.yield).reversed());
+
+        int removed = 0;
+        long saved = 0L;
+        for (Candidate candidate : candidates) {
+            if (size - saved <= maxBytes) {
+                break;
+            }
+            remove(candidate);
+            saved += candidate.yield;
+            removed++;
+        }
+
+        if (removed > 0) {
+            debugMessages.add(String.format("Removed %d NBT tags from shulker contents (%d -> %d bytes)", removed,
+                    size, size - saved));
+        }
+        return removed > 0;
+    }
+
+    private static long displayYield(ReadWriteNBT display) {
+        if (display == null) {
+            return 0L;
+        }
+        long yield = 0L;
+        if (display.hasTag("Name")) {
+            yield += NbtSizer.entrySize(display, "Name");
+        }
+        if (display.hasTag("Lore")) {
+            yield += NbtSizer.entrySize(display, "Lore");
+        }
+        return yield;
+    }
+
+    private static void remove(Candidate candidate) {
+        ReadWriteNBT tag = candidate.tag;
+        if ("display".equals(candidate.key)) {
+            ReadWriteNBT display = tag.getCompound("display");
+            if (display != null) {
+                display.removeKey("Lore");
+                display.removeKey("Name");
+                if (display.getKeys().isEmpty()) {
+                    tag.removeKey("display");
+                }
+            }
+        } else {
+            tag.removeKey(candidate.key);
+        }
+        if (tag.getKeys().isEmpty()) {
+            candidate.item.removeKey("tag");
+        }
+    }
+
+    private static final class Candidate {
+        private final ReadWriteNBT item;
+        private final ReadWriteNBT tag;
+        private final String key;
+        private final long yield;
+
+        private Candidate(ReadWriteNBT item, ReadWriteNBT tag, String key, long yield) {
+            this.item = item;
+            this.tag = tag;
+            this.key = key;
+            this.yield = yield;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.optitem.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Fixed-size off-heap region for snapshot payloads. Slots are rounded to {@value #BLOCK_BYTES} bytes, allocated
+ * best-fit and coalesced with their neighbours when freed, so the arena never grows past the configured budget.
+ */
+final class SnapshotArena {
+
+    private static final int BLOCK_BYTES = 64;
+
+    private final ByteBuffer memory;
+    private final int capacity;
+    private final TreeMap<Integer, Integer> freeByOffset = new TreeMap<>();
+    private final TreeSet<Long> freeBySize = new TreeSet<>();
+    private long usedBytes;
+
+    SnapshotArena(int capacityBytes) {
+        this.capacity = Math.max(BLOCK_BYTES, capacityBytes - capacityBytes % BLOCK_BYTES);
+        this.memory = ByteBuffer.allocateDirect(capacity);
+        addFree(0, capacity);
+    }
+
+    synchronized int allocate(byte[] payload) {
+        int size = slotSize(payload.length);
+        Long fit = freeBySize.ceiling((long) size << 32);
+        if (fit == null) {
+            return -1;
+        }
+        int blockSize = (int) (fit >>> 32);
+        int offset = (int) fit.longValue();
+        removeFree(offset, blockSize);
+        if (blockSize > size) {
+            addFree(offset + size, blockSize - size);
+        }
+        memory.put(offset, payload);
+        usedBytes += size;
+        return offset;
+    }
+
+    synchronized byte[] read(int offset, int length) {
+        byte[] payload = new byte[length];
+        memory.get(offset, payload);
+        return payload;
+    }
+
+    synchronized void free(int offset, int length) {
+        int size = slotSize(length);
+        usedBytes -= size;
+        int start = offset;
+        int end = offset + size;
+
+        Map.Entry<Integer, Integer> lower = freeByOffset.floorEntry(offset);
+        if (lower != null && lower.getKey() + lower.getValue() == offset) {
+            removeFree(lower.getKey(), lower.getValue());
+            start = lower.getKey();
+        }
+        Integer higherSize = freeByOffset.get(end);
+        if (higherSize != null) {
+            removeFree(end, higherSize);
+            end += higherSize;
+        }
+        addFree(start, end - start);
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private void addFree(int offset, int size) {
+        freeByOffset.put(offset, size);
+        freeBySize.add(((long) size << 32) | offset);
+    }
+
+    private void removeFree(int offset, int size) {
+        freeByOffset.remove(offset);
+        freeBySize.remove(((long) size << 32) | offset);
+    }
+
+    private static int slotSize(int length) {
+        return Math.max(BLOCK_BYTES, (length + BLOCK_BYTES - 1) / BLOCK_BYTES * BLOCK_BYTES);
+    }
+}
@@ -0,0 +1,506 @@
+package com.optitem.cache;
+
+import de.tr7zw.changeme.nbtapi.NBTContainer;
+import de.tr7zw.changeme.nbtapi.NBTType;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBTCompoundList;
+import de.tr7zw.changeme.nbtapi.iface.ReadWriteNBTList;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Binary snapshot format for cached item NBT.
+ * <p>
+ * Compounds are written with sorted keys so identical content always yields identical bytes; numbers use zig-zag
+ * varints. Shapes the NBT-API accessors cannot rebuild (empty lists, byte/short lists, lists of lists) are stored
+ * as an SNBT payload behind a format marker instead.
+ */
+final class SnapshotCodec {
+
+    static final byte FORMAT_BINARY = 1;
+    static final byte FORMAT_SNBT = 2;
+
+    static final int TAG_BYTE = 1;
+    static final int TAG_SHORT = 2;
+    static final int TAG_INT = 3;
+    static final int TAG_LONG = 4;
+    static final int TAG_FLOAT = 5;
+    static final int TAG_DOUBLE = 6;
+    static final int TAG_BYTE_ARRAY = 7;
+    static final int TAG_STRING = 8;
+    static final int TAG_LIST = 9;
+    static final int TAG_COMPOUND = 10;
+    static final int TAG_INT_ARRAY = 11;
+    static final int TAG_LONG_ARRAY = 12;
+
+    private static final UnsupportedTagException UNSUPPORTED = new UnsupportedTagException();
+
+    private SnapshotCodec() {
+    }
+
+    static byte[] encode(ReadWriteNBT compound) {
+        ByteSink sink = new ByteSink(256);
+        sink.writeByte(FORMAT_BINARY);
+        try {
+            writeCompound(sink, compound);
+        } catch (UnsupportedTagException ex) {
+            return encodeFallback(compound);
+        }
+        return sink.toByteArray();
+    }
+
+    static NBTContainer decode(byte[] snapshot) {
+        return decode(ByteBuffer.wrap(snapshot));
+    }
+
+    static NBTContainer decode(ByteBuffer snapshot) {
+        ByteBuffer in = snapshot.duplicate();
+        byte format = in.get();
+        if (format == FORMAT_SNBT) {
+            return new NBTContainer(readUtf8(in, in.remaining()));
+        }
+        NBTContainer container = new NBTContainer();
+        decodeInto(snapshot, container);
+        return container;
+    }
+
+    /** Decodes a binary snapshot into {@code target}, which can be any compound view, not only an NBT-API one. */
+    static void decodeInto(ByteBuffer snapshot, ReadWriteNBT target) {
+        ByteBuffer in = snapshot.duplicate();
+        byte format = in.get();
+        if (format != FORMAT_BINARY) {
+            throw new IllegalArgumentException("Not a binary snapshot: format " + format);
+        }
+        readCompound(in, target);
+    }
+
+    private static byte[] encodeFallback(ReadWriteNBT compound) {
+        byte[] serialized = compound.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = new byte[serialized.length + 1];
+        encoded[0] = FORMAT_SNBT;
+        System.arraycopy(serialized, 0, encoded, 1, serialized.length);
+        return encoded;
+    }
+
+    private static void writeCompound(ByteSink sink, ReadWriteNBT compound) throws UnsupportedTagException {
+        String[] keys = sortedKeys(compound);
+        sink.writeVarInt(keys.length);
+        for (String key : keys) {
+            int tagId = tagId(compound.getType(key));
+            sink.writeByte(tagId);
+            sink.writeString(key);
+            writeValue(sink, compound, key, tagId);
+        }
+    }
+
+    private static void writeValue(ByteSink sink, ReadWriteNBT compound, String key, int tagId)
+            throws UnsupportedTagException {
+        switch (tagId) {
+            case TAG_BYTE -> sink.writeByte(compound.getByte(key));
+            case TAG_SHORT -> sink.writeVarInt(zigZag(compound.getShort(key)));
+            case TAG_INT -> sink.writeVarInt(zigZag(compound.getInteger(key)));
+            case TAG_LONG -> sink.writeVarLong(zigZag(compound.getLong(key)));
+            case TAG_FLOAT -> sink.writeInt(Float.floatToRawIntBits(compound.getFloat(key)));
+            case TAG_DOUBLE -> sink.writeLong(Double.doubleToRawLongBits(compound.getDouble(key)));
+            case TAG_STRING -> sink.writeString(compound.getString(key));
+            case TAG_BYTE_ARRAY -> {
+                byte[] values = compound.getByteArray(key);
+                sink.writeVarInt(values.length);
+                sink.writeBytes(values);
+            }
+            case TAG_INT_ARRAY -> writeIntArray(sink, compound.getIntArray(key));
+            case TAG_LONG_ARRAY -> {
+                long[] values = compound.getLongArray(key);
+                sink.writeVarInt(values.length);
+                for (long value : values) {
+                    sink.writeVarLong(zigZag(value));
+                }
+            }
+            case TAG_COMPOUND -> writeCompound(sink, compound.getCompound(key));
+            case TAG_LIST -> writeList(sink, compound, key);
+            default -> throw UNSUPPORTED;
+        }
+    }
+
+    private static void writeList(ByteSink sink, ReadWriteNBT compound, String key) throws UnsupportedTagException {
+        NBTType elementType = compound.getListType(key);
+        if (elementType == null) {
+            throw UNSUPPORTED;
+        }
+        int elementId = tagId(elementType);
+        switch (elementId) {
+            case TAG_COMPOUND -> {
+                ReadWriteNBTCompoundList list = compound.getCompoundList(key);
+                writeListHeader(sink, elementId, list.size());
+                for (ReadWriteNBT element : list) {
+                    writeCompound(sink, element);
+                }
+            }
+            case TAG_STRING -> {
+                ReadWriteNBTList<String> list = compound.getStringList(key);
+                writeListHeader(sink, elementId, list.size());
+                for (String element : list) {
+                    sink.writeString(element);
+                }
+            }
+            case TAG_INT -> {
+                ReadWriteNBTList<Integer> list = compound.getIntegerList(key);
+                writeListHeader(sink, elementId, list.size());
+                for (Integer element : list) {
+                    sink.writeVarInt(zigZag(element));
+                }
+            }
+            case TAG_LONG -> {
+                ReadWriteNBTList<Long> list = compound.getLongList(key);
+                writeListHeader(sink, elementId, list.size());
+                for (Long element : list) {
+                    sink.writeVarLong(zigZag(element));
+                }
+            }
+            case TAG_FLOAT -> {
+                ReadWriteNBTList<Float> list = compound.getFloatList(key);
+                writeListHeader(sink, elementId, list.size());
+                for (Float element : list) {
+                    sink.writeInt(Float.floatToRawIntBits(element));
+                }
+            }
+            case TAG_DOUBLE -> {
+                ReadWriteNBTList<Double> list = compound.getDoubleList(key);
+                writeListHeader(sink, elementId, list.size());
+                for (Double element : list) {
+                    sink.writeLong(Double.doubleToRawLongBits(element));
+                }
+            }
+            case TAG_INT_ARRAY -> {
+                ReadWriteNBTList<int[]> list = compound.getIntArrayList(key);
+                writeListHeader(sink, elementId, list.size());
+                for (int[] element : list) {
+                    writeIntArray(sink, element);
+                }
+            }
+            default -> throw UNSUPPORTED;
+        }
+    }
+
+    private static void writeListHeader(ByteSink sink, int elementId, int size) throws UnsupportedTagException {
+        if (size == 0) {
+            throw UNSUPPORTED;
+        }
+        sink.writeByte(elementId);
+        sink.writeVarInt(size);
+    }
+
+    private static void writeIntArray(ByteSink sink, int[] values) {
+        sink.writeVarInt(values.length);
+        for (int value : values) {
+            sink.writeVarInt(zigZag(value));
+        }
+    }
+
+    private static void readCompound(ByteBuffer in, ReadWriteNBT target) {
+        int count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            int tagId = in.get() & 0xFF;
+            String key = readString(in);
+            readValue(in, target, key, tagId);
+        }
+    }
+
+    private static void readValue(ByteBuffer in, ReadWriteNBT target, String key, int tagId) {
+        switch (tagId) {
+            case TAG_BYTE -> target.setByte(key, in.get());
+            case TAG_SHORT -> target.setShort(key, (short) unZigZag(readVarInt(in)));
+            case TAG_INT -> target.setInteger(key, unZigZag(readVarInt(in)));
+            case TAG_LONG -> target.setLong(key, unZigZag(readVarLong(in)));
+            case TAG_FLOAT -> target.setFloat(key, Float.intBitsToFloat(in.getInt()));
+            case TAG_DOUBLE -> target.setDouble(key, Double.longBitsToDouble(in.getLong()));
+            case TAG_STRING -> target.setString(key, readString(in));
+            case TAG_BYTE_ARRAY -> {
+                byte[] values = new byte[readVarInt(in)];
+                in.get(values);
+                target.setByteArray(key, values);
+            }
+            case TAG_INT_ARRAY -> target.setIntArray(key, readIntArray(in));
+            case TAG_LONG_ARRAY -> {
+                long[] values = new long[readVarInt(in)];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = unZigZag(readVarLong(in));
+                }
+                target.setLongArray(key, values);
+            }
+            case TAG_COMPOUND -> readCompound(in, target.getOrCreateCompound(key));
+            case TAG_LIST -> readList(in, target, key);
+            default -> throw new IllegalArgumentException("Unknown tag type " + tagId + " for key " + key);
+        }
+    }
+
+    private static void readList(ByteBuffer in, ReadWriteNBT target, String key) {
+        int elementId = in.get() & 0xFF;
+        int size = readVarInt(in);
+        switch (elementId) {
+            case TAG_COMPOUND -> {
+                ReadWriteNBTCompoundList list = target.getCompoundList(key);
+                for (int i = 0; i < size; i++) {
+                    readCompound(in, list.addCompound());
+                }
+            }
+            case TAG_STRING -> {
+                ReadWriteNBTList<String> list = target.getStringList(key);
+                for (int i = 0; i < size; i++) {
+                    list.add(readString(in));
+                }
+            }
+            case TAG_INT -> {
+                ReadWriteNBTList<Integer> list = target.getIntegerList(key);
+                for (int i = 0; i < size; i++) {
+                    list.add(unZigZag(readVarInt(in)));
+                }
+            }
+            case TAG_LONG -> {
+                ReadWriteNBTList<Long> list = target.getLongList(key);
+                for (int i = 0; i < size; i++) {
+                    list.add(unZigZag(readVarLong(in)));
+                }
+            }
+            case TAG_FLOAT -> {
+                ReadWriteNBTList<Float> list = target.getFloatList(key);
+                for (int i = 0; i < size; i++) {
+                    list.add(Float.intBitsToFloat(in.getInt()));
+                }
+            }
+            case TAG_DOUBLE -> {
+                ReadWriteNBTList<Double> list = target.getDoubleList(key);
+                for (int i = 0; i < size; i++) {
+                    list.add(Double.longBitsToDouble(in.getLong()));
+                }
+            }
+            case TAG_INT_ARRAY -> {
+                ReadWriteNBTList<int[]> list = target.getIntArrayList(key);
+                for (int i = 0; i < size; i++) {
+                    list.add(readIntArray(in));
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown list type " + elementId + " for key " + key);
+        }
+    }
+
+    private static int[] readIntArray(ByteBuffer in) {
+        int[] values = new int[readVarInt(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = unZigZag(readVarInt(in));
+        }
+        return values;
+    }
+
+    /** Advances {@code in} past a value of type {@code tagId} without materializing it. */
+    static void skipValue(ByteBuffer in, int tagId) {
+        switch (tagId) {
+            case TAG_BYTE -> skip(in, 1);
+            case TAG_SHORT, TAG_INT -> readVarInt(in);
+            case TAG_LONG -> readVarLong(in);
+            case TAG_FLOAT -> skip(in, 4);
+            case TAG_DOUBLE -> skip(in, 8);
+            case TAG_STRING, TAG_BYTE_ARRAY -> skip(in, readVarInt(in));
+            case TAG_INT_ARRAY -> {
+                int length = readVarInt(in);
+                for (int i = 0; i < length; i++) {
+                    readVarInt(in);
+                }
+            }
+            case TAG_LONG_ARRAY -> {
+                int length = readVarInt(in);
+                for (int i = 0; i < length; i++) {
+                    readVarLong(in);
+                }
+            }
+            case TAG_COMPOUND -> {
+                int count = readVarInt(in);
+                for (int i = 0; i < count; i++) {
+                    int entryId = in.get() & 0xFF;
+                    skip(in, readVarInt(in));
+                    skipValue(in, entryId);
+                }
+            }
+            case TAG_LIST -> {
+                int elementId = in.get() & 0xFF;
+                int size = readVarInt(in);
+                for (int i = 0; i < size; i++) {
+                    skipValue(in, elementId);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown tag type " + tagId);
+        }
+    }
+
+    private static void skip(ByteBuffer in, int length) {
+        in.position(in.position() + length);
+    }
+
+    private static String[] sortedKeys(ReadWriteNBT compound) {
+        Set<String> keys = compound.getKeys();
+        String[] sorted = keys.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static int tagId(NBTType type) throws UnsupportedTagException {
+        if (type == null) {
+            throw UNSUPPORTED;
+        }
+        return switch (type) {
+            case NBTTagByte -> TAG_BYTE;
+            case NBTTagShort -> TAG_SHORT;
+            case NBTTagInt -> TAG_INT;
+            case NBTTagLong -> TAG_LONG;
+            case NBTTagFloat -> TAG_FLOAT;
+            case NBTTagDouble -> TAG_DOUBLE;
+            case NBTTagByteArray -> TAG_BYTE_ARRAY;
+            case NBTTagString -> TAG_STRING;
+            case NBTTagList -> TAG_LIST;
+            case NBTTagCompound -> TAG_COMPOUND;
+            case NBTTagIntArray -> TAG_INT_ARRAY;
+            case NBTTagLongArray -> TAG_LONG_ARRAY;
+            default -> throw UNSUPPORTED;
+        };
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int result = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = in.get();
+            result |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0 && shift < 35);
+        return result;
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long result = 0L;
+        int shift = 0;
+        byte current;
+        do {
+            current = in.get();
+            result |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0 && shift < 70);
+        return result;
+    }
+
+    static String readString(ByteBuffer in) {
+        return readUtf8(in, readVarInt(in));
+    }
+
+    private static String readUtf8(ByteBuffer in, int length) {
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static final class ByteSink {
+        private byte[] buffer;
+        private int size;
+
+        ByteSink(int initialCapacity) {
+            this.buffer = new byte[Math.max(16, initialCapacity)];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] values) {
+            writeBytes(values, 0, values.length);
+        }
+
+        void writeBytes(byte[] values, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(values, offset, buffer, size, length);
+            size += length;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0L) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            buffer[size++] = (byte) (value >>> 24);
+            buffer[size++] = (byte) (value >>> 16);
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensureCapacity(int additional) {
+            int required = size + additional;
+            if (required > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+            }
+        }
+    }
+
+    private static final class UnsupportedTagException extends Exception {
+        private UnsupportedTagException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.optitem.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Append-only, memory-mapped segment of encoded snapshots keyed by {@link CacheKey}.
+ * <p>
+ * Layout: a 16 byte file header (magic, format version) followed by records of
+ * {@code [long high][long low][int length][int flags][payload]}. Opening only walks the record headers; payloads
+ * are read when a key is first looked up and are checked against their key, so a torn tail after a crash is dropped
+ * instead of restored.
+ * <p>
+ * Records are pinned when a minimal placeholder points at them, since that placeholder holds nothing else and may
+ * sit in a chunk that is not loaded again for a long time. Every other record only spares a full placeholder its
+ * restore, so {@link #open} compacts the file down to its pinned records before mapping it, and unpinned records
+ * may only fill the first half of the file so they never crowd out pinned ones.
+ */
+final class SnapshotStore implements AutoCloseable {
+
+    private static final long MAGIC = 0x4F50544954454D53L;
+    private static final int VERSION = 2;
+    private static final int LEGACY_VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 24;
+    private static final int LEGACY_RECORD_HEADER_BYTES = 20;
+    private static final int FLAG_PINNED = 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final int capacity;
+    private final ConcurrentMap<CacheKey, Long> index = new ConcurrentHashMap<>();
+    private int writePosition;
+    private long reclaimedBytes;
+
+    private SnapshotStore(Path path, FileChannel channel, MappedByteBuffer mapped, int capacity) {
+        this.path = path;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.capacity = capacity;
+    }
+
+    static SnapshotStore open(Path path, int maxBytes) throws IOException {
+        Files.createDirectories(path.getParent());
+        long reclaimed = compact(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long existing = channel.size();
+            int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(existing, Math.max(maxBytes, 4096)));
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            SnapshotStore store = new SnapshotStore(path, channel, mapped, capacity);
+            store.loadIndex(existing);
+            store.reclaimedBytes = reclaimed;
+            return store;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    boolean contains(CacheKey key) {
+        return index.containsKey(key);
+    }
+
+    byte[] load(CacheKey key) {
+        Long location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        int offset = (int) (location >>> 32);
+        int length = (int) location.longValue();
+        byte[] payload = new byte[length];
+        mapped.get(offset, payload);
+        if (!CacheKey.hash(payload).equals(key)) {
+            index.remove(key, location);
+            return null;
+        }
+        return payload;
+    }
+
+    /**
+     * Stores {@code payload} under {@code key} unless it is already there; {@code pinned} also pins an existing
+     * record.
+     *
+     * @return whether the store holds the key afterwards
+     */
+    synchronized boolean append(CacheKey key, byte[] payload, boolean pinned) {
+        Long location = index.get(key);
+        if (location != null) {
+            if (pinned) {
+                mapped.putInt((int) (location >>> 32) - 4, FLAG_PINNED);
+            }
+            return true;
+        }
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+        int limit = pinned ? capacity : capacity / 2;
+        if (writePosition + recordBytes + RECORD_HEADER_BYTES > limit) {
+            return false;
+        }
+        int payloadOffset = writePosition + RECORD_HEADER_BYTES;
+        mapped.put(payloadOffset, payload);
+        mapped.putInt(writePosition + 20, pinned ? FLAG_PINNED : 0);
+        mapped.putInt(writePosition + 16, payload.length);
+        mapped.putLong(writePosition + 8, key.low());
+        mapped.putLong(writePosition, key.high());
+        index.put(key, ((long) payloadOffset << 32) | payload.length);
+        writePosition += recordBytes;
+        return true;
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    int usedBytes() {
+        return writePosition;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /** Bytes the compaction on open dropped. */
+    long reclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapped.force();
+        channel.close();
+    }
+
+    private void loadIndex(long existingBytes) {
+        if (existingBytes < FILE_HEADER_BYTES || mapped.getLong(0) != MAGIC || mapped.getInt(8) != VERSION) {
+            mapped.putLong(0, MAGIC);
+            mapped.putInt(8, VERSION);
+            mapped.putInt(12, 0);
+            mapped.putLong(FILE_HEADER_BYTES, 0L);
+            mapped.putLong(FILE_HEADER_BYTES + 8, 0L);
+            mapped.putInt(FILE_HEADER_BYTES + 16, 0);
+            mapped.putInt(FILE_HEADER_BYTES + 20, 0);
+            writePosition = FILE_HEADER_BYTES;
+            return;
+        }
+
+        int position = FILE_HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= capacity) {
+            long high = mapped.getLong(position);
+            long low = mapped.getLong(position + 8);
+            int length = mapped.getInt(position + 16);
+            if (length <= 0 || position + RECORD_HEADER_BYTES + length > capacity) {
+                break;
+            }
+            int payloadOffset = position + RECORD_HEADER_BYTES;
+            index.putIfAbsent(CacheKey.of(high, low), ((long) payloadOffset << 32) | length);
+            position = payloadOffset + length;
+        }
+        writePosition = position;
+    }
+
+    /**
+     * Rewrites the file at {@code path} with only its pinned, intact records, through a temporary file so a crash
+     * leaves either the old or the new segment. Every record of a version 1 file is kept, since those carry no
+     * flags.
+     *
+     * @return the bytes dropped
+     */
+    private static long compact(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return 0L;
+        }
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        long before;
+        long scanned = FILE_HEADER_BYTES;
+        long after = FILE_HEADER_BYTES;
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+            before = source.size();
+            ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            if (before < FILE_HEADER_BYTES || !readFully(source, fileHeader, 0L) || fileHeader.getLong(0) != MAGIC) {
+                return 0L;
+            }
+            int version = fileHeader.getInt(8);
+            if (version != VERSION && version != LEGACY_VERSION) {
+                return 0L;
+            }
+            int headerBytes = version == VERSION ? RECORD_HEADER_BYTES : LEGACY_RECORD_HEADER_BYTES;
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)))) {
+                out.writeLong(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(0);
+
+                ByteBuffer header = ByteBuffer.allocate(headerBytes);
+                long position = FILE_HEADER_BYTES;
+                while (position + headerBytes <= before) {
+                    header.clear();
+                    if (!readFully(source, header, position)) {
+                        break;
+                    }
+                    int length = header.getInt(16);
+                    if (length <= 0 || position + headerBytes + length > before) {
+                        break;
+                    }
+                    boolean pinned = version == LEGACY_VERSION || (header.getInt(20) & FLAG_PINNED) != 0;
+                    if (pinned) {
+                        CacheKey key = CacheKey.of(header.getLong(0), header.getLong(8));
+                        ByteBuffer payload = ByteBuffer.allocate(length);
+                        if (readFully(source, payload, position + headerBytes)
+                                && CacheKey.hash(payload.array()).equals(key)) {
+                            out.writeLong(key.high());
+                            out.writeLong(key.low());
+                            out.writeInt(length);
+                            out.writeInt(FLAG_PINNED);
+                            out.write(payload.array());
+                            after += RECORD_HEADER_BYTES + length;
+                        }
+                    }
+                    position += headerBytes + length;
+                }
+                scanned = position;
+            }
+        }
+        try (FileChannel written = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+            written.force(true);
+        }
+        try {
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return Math.max(0L, scanned - after);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
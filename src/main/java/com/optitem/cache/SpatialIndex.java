@@ -0,0 +1,150 @@
+package com.optitem.cache;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracked entities bucketed by world and chunk. Buckets reflect the chunk an entity was last seen in; radius
+ * queries widen by one chunk so items that drifted over a border are still found, and callers re-bucket whatever
+ * they resolve through {@link #track}.
+ */
+final class SpatialIndex {
+
+    private static final int DRIFT_MARGIN_CHUNKS = 1;
+
+    private final ConcurrentMap<UUID, ConcurrentMap<Long, Set<UUID>>> worlds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, Cell> cells = new ConcurrentHashMap<>();
+
+    void track(UUID entityId, Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return;
+        }
+        Cell cell = new Cell(world.getUID(), chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+        Cell previous = cells.put(entityId, cell);
+        if (cell.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            removeFromBucket(entityId, previous);
+        }
+        worlds.computeIfAbsent(cell.worldId, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(cell.chunkKey, key -> ConcurrentHashMap.newKeySet())
+                .add(entityId);
+    }
+
+    void untrack(UUID entityId) {
+        Cell previous = cells.remove(entityId);
+        if (previous != null) {
+            removeFromBucket(entityId, previous);
+        }
+    }
+
+    List<UUID> near(Location center, double radius) {
+        World world = center.getWorld();
+        if (world == null) {
+            return List.of();
+        }
+        Map<Long, Set<UUID>> chunks = worlds.get(world.getUID());
+        if (chunks == null || chunks.isEmpty()) {
+            return List.of();
+        }
+
+        int minX = ((int) Math.floor(center.getX() - radius) >> 4) - DRIFT_MARGIN_CHUNKS;
+        int maxX = ((int) Math.floor(center.getX() + radius) >> 4) + DRIFT_MARGIN_CHUNKS;
+        int minZ = ((int) Math.floor(center.getZ() - radius) >> 4) - DRIFT_MARGIN_CHUNKS;
+        int maxZ = ((int) Math.floor(center.getZ() + radius) >> 4) + DRIFT_MARGIN_CHUNKS;
+
+        List<UUID> found = new ArrayList<>();
+        long span = (long) (maxX - minX + 1) * (maxZ - minZ + 1);
+        if (span > chunks.size()) {
+            for (Map.Entry<Long, Set<UUID>> bucket : chunks.entrySet()) {
+                long key = bucket.getKey();
+                int chunkX = (int) key;
+                int chunkZ = (int) (key >> 32);
+                if (chunkX >= minX && chunkX <= maxX && chunkZ >= minZ && chunkZ <= maxZ) {
+                    found.addAll(bucket.getValue());
+                }
+            }
+            return found;
+        }
+
+        for (int chunkX = minX; chunkX <= maxX; chunkX++) {
+            for (int chunkZ = minZ; chunkZ <= maxZ; chunkZ++) {
+                Set<UUID> bucket = chunks.get(chunkKey(chunkX, chunkZ));
+                if (bucket != null) {
+                    found.addAll(bucket);
+                }
+            }
+        }
+        return found;
+    }
+
+    Set<UUID> inChunk(UUID worldId, int chunkX, int chunkZ) {
+        Map<Long, Set<UUID>> chunks = worlds.get(worldId);
+        if (chunks == null) {
+            return Set.of();
+        }
+        Set<UUID> bucket = chunks.get(chunkKey(chunkX, chunkZ));
+        return bucket == null ? Set.of() : Collections.unmodifiableSet(bucket);
+    }
+
+    int size() {
+        return cells.size();
+    }
+
+    void clear() {
+        worlds.clear();
+        cells.clear();
+    }
+
+    private void removeFromBucket(UUID entityId, Cell cell) {
+        ConcurrentMap<Long, Set<UUID>> chunks = worlds.get(cell.worldId);
+        if (chunks == null) {
+            return;
+        }
+        chunks.computeIfPresent(cell.chunkKey, (key, bucket) -> {
+            bucket.remove(entityId);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+
+    private static final class Cell {
+        private final UUID worldId;
+        private final long chunkKey;
+
+        private Cell(UUID worldId, long chunkKey) {
+            this.worldId = worldId;
+            this.chunkKey = chunkKey;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Cell cell)) {
+                return false;
+            }
+            return chunkKey == cell.chunkKey && worldId.equals(cell.worldId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * worldId.hashCode() + Long.hashCode(chunkKey);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.optitem.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed store for the items inside shulker snapshots. Identical item payloads are kept once and
+ * reference-counted by the {@link ShulkerSnapshot}s that hold them, so fifty boxes of the same pickaxes cost one
+ * copy of each pickaxe.
+ */
+final class SubItemPool {
+
+    private final Map<CacheKey, SubItem> items = new HashMap<>();
+    private long usedBytes;
+
+    /**
+     * Returns the pooled item for {@code payload}, adding it if absent. A hash match with different bytes gets a
+     * private item that is never pooled; callers can tell they own the bytes when the returned payload is theirs.
+     */
+    synchronized SubItem acquire(CacheKey key, byte[] payload) {
+        SubItem item = items.get(key);
+        if (item == null) {
+            item = new SubItem(key, payload);
+            items.put(key, item);
+            usedBytes += payload.length;
+        } else if (!Arrays.equals(item.payload, payload)) {
+            return new SubItem(null, payload);
+        }
+        item.references++;
+        return item;
+    }
+
+    synchronized void release(SubItem item) {
+        if (item.key == null || --item.references > 0) {
+            return;
+        }
+        if (items.remove(item.key, item)) {
+            usedBytes -= item.payload.length;
+        }
+    }
+
+    synchronized int size() {
+        return items.size();
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    synchronized void clear() {
+        items.clear();
+        usedBytes = 0L;
+    }
+
+    static final class SubItem {
+        private final CacheKey key;
+        private final byte[] payload;
+        private int references;
+
+        private SubItem(CacheKey key, byte[] payload) {
+            this.key = key;
+            this.payload = payload;
+        }
+
+        byte[] payload() {
+            return payload;
+        }
+
+        /** Whether the bytes live in the pool, and are charged there, rather than to the snapshot holding them. */
+        boolean pooled() {
+            return key != null;
+        }
+    }
+}
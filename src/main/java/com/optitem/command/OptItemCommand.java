@@ -0,0 +1,103 @@
+package com.optitem.command;
+
+import com.optitem.cache.CacheMetrics;
+import com.optitem.cache.NBTCacheManager;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@SuppressWarnings("deprecation")
+public final class OptItemCommand implements CommandExecutor, TabCompleter {
+
+    private static final String PERMISSION = "optitem.admin";
+
+    private final NBTCacheManager cacheManager;
+
+    public OptItemCommand(NBTCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(PERMISSION)) {
+            sender.sendMessage(ChatColor.RED + "You do not have permission to use this command.");
+            return true;
+        }
+        if (args.length == 0 || !"stats".equalsIgnoreCase(args[0])) {
+            sender.sendMessage(ChatColor.GRAY + "Usage: /" + label + " stats");
+            return true;
+        }
+        sendStats(sender);
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length == 1 && sender.hasPermission(PERMISSION)
+                && "stats".startsWith(args[0].toLowerCase(Locale.ROOT))) {
+            return List.of("stats");
+        }
+        return List.of();
+    }
+
+    private void sendStats(CommandSender sender) {
+        CacheMetrics metrics = cacheManager.getMetrics();
+        Map<String, Long> gauges = cacheManager.getGauges();
+        long hits = metrics.getCacheHits();
+        long lookups = hits + metrics.getCacheMisses();
+
+        sender.sendMessage(ChatColor.GOLD + "OptItem stats");
+        line(sender, "Spawn queue", String.format("%d/%d queued, %d total, %d dropped",
+                gauges.get("spawn_queue_depth"), gauges.get("spawn_queue_capacity"), metrics.getSpawnsQueued(),
+                metrics.getSpawnsDropped()));
+        line(sender, "Latency p50/p99", String.format("wait %s/%s, process %s/%s, apply %s/%s",
+                micros(metrics.getQueueWait().quantileMicros(0.5D)),
+                micros(metrics.getQueueWait().quantileMicros(0.99D)),
+                micros(metrics.getProcessing().quantileMicros(0.5D)),
+                micros(metrics.getProcessing().quantileMicros(0.99D)),
+                micros(metrics.getApplyDelay().quantileMicros(0.5D)),
+                micros(metrics.getApplyDelay().quantileMicros(0.99D))));
+        line(sender, "Cache", String.format("%d entries, %d tracked items, %.1f%% hit rate (%d lookups), %d evicted",
+                gauges.get("cache_entries"), gauges.get("tracked_items"),
+                lookups == 0L ? 0D : hits * 100D / lookups, lookups, metrics.getEvictions()));
+        line(sender, "Memory", String.format("%s snapshots, %s saved, %s of %s budget, %d pooled shulker items (%s)",
+                bytes(gauges.get("cache_snapshot_bytes")), bytes(gauges.get("cache_bytes_saved")),
+                bytes(gauges.get("cache_weight_bytes")), bytes(gauges.get("cache_max_weight_bytes")),
+                gauges.get("pooled_sub_items"), bytes(gauges.get("pooled_sub_item_bytes"))));
+        line(sender, "Sweep", String.format("%d cycles, last freed %d entries (%s), %d entries (%s) in total",
+                metrics.getSweepCycles(), metrics.getLastSweepEntries(), bytes(metrics.getLastSweepBytes()),
+                metrics.getSweptEntries(), bytes(metrics.getSweptBytes())));
+        line(sender, "Restores", metrics.getRestoresByReason().isEmpty() ? "none"
+                : metrics.getRestoresByReason().toString());
+        line(sender, "Packets", String.format("%d rewrites, %.1f/s, %d minimal, %d upgraded, %d redundant skipped",
+                metrics.getPacketRewrites(), metrics.getPacketRewritesPerSecond(), metrics.getMinimalViews(),
+                metrics.getViewUpgrades(), metrics.getRedundantItemsSkipped()));
+    }
+
+    private static void line(CommandSender sender, String name, String value) {
+        sender.sendMessage(ChatColor.YELLOW + name + ": " + ChatColor.WHITE + value);
+    }
+
+    private static String micros(long micros) {
+        if (micros == Long.MAX_VALUE) {
+            return ">2s";
+        }
+        return micros >= 1000L ? String.format("%.1fms", micros / 1000D) : micros + "µs";
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes >= 1024L * 1024L) {
+            return String.format("%.1f MiB", bytes / (1024D * 1024D));
+        }
+        if (bytes >= 1024L) {
+            return String.format("%.1f KiB", bytes / 1024D);
+        }
+        return bytes + " B";
+    }
+}
@@ -3,14 +3,22 @@ package com.optitem.listener;
 import com.optitem.cache.NBTCacheManager;
 import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
 import org.bukkit.Chunk;
-import org.bukkit.entity.Item;
+import org.bukkit.entity.Entity;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.EntitySpawnEvent;
+import org.bukkit.event.entity.ItemMergeEvent;
 import org.bukkit.event.entity.ItemSpawnEvent;
+import org.bukkit.event.hanging.HangingBreakEvent;
 import org.bukkit.event.inventory.InventoryPickupItemEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.player.PlayerArmorStandManipulateEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 public final class ItemListener implements Listener {
@@ -28,11 +36,71 @@ public final class ItemListener implements Listener {
         cacheManager.handleItemSpawn(event.getEntity());
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntitySpawn(EntitySpawnEvent event) {
+        if (!(event instanceof ItemSpawnEvent)) {
+            cacheManager.handleHolderLoad(event.getEntity());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            cacheManager.handleHolderLoad(entity);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onHolderInteract(PlayerInteractEntityEvent event) {
+        cacheManager.handleHolderInteract(event.getRightClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onHolderInteractDone(PlayerInteractEntityEvent event) {
+        cacheManager.recacheHolder(event.getRightClicked());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onArmorStandManipulate(PlayerArmorStandManipulateEvent event) {
+        cacheManager.handleHolderInteract(event.getRightClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onArmorStandManipulateDone(PlayerArmorStandManipulateEvent event) {
+        cacheManager.recacheHolder(event.getRightClicked());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onHolderDamage(EntityDamageEvent event) {
+        cacheManager.handleHolderInteract(event.getEntity());
+    }
+
+    // A hit that goes through usually breaks the holder or knocks its item out, and the next load picks up any
+    // that keep theirs, so only cancelled hits are cached again straight away.
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onHolderDamageDone(EntityDamageEvent event) {
+        if (event.isCancelled()) {
+            cacheManager.recacheHolder(event.getEntity());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onHangingBreak(HangingBreakEvent event) {
+        cacheManager.handleHolderInteract(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onHangingBreakDone(HangingBreakEvent event) {
+        if (event.isCancelled()) {
+            cacheManager.recacheHolder(event.getEntity());
+        }
+    }
+
     @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
     public void onEntityPickup(EntityPickupItemEvent event) {
         var restored = cacheManager.handleAttemptPickup(event.getItem());
         if (restored.isPresent()) {
-            cacheManager.ensureEntityItemsRestored(event.getEntity());
+            cacheManager.ensureEntityItemsRestored(event.getEntity(), restored.get().getType());
         }
     }
 
@@ -40,15 +108,25 @@ public final class ItemListener implements Listener {
     public void onInventoryPickup(InventoryPickupItemEvent event) {
         var restored = cacheManager.handleAttemptPickup(event.getItem());
         if (restored.isPresent()) {
-            cacheManager.ensureInventoryRestored(event.getInventory());
+            cacheManager.ensureInventoryRestored(event.getInventory(), restored.get().getType());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onItemMergeCheck(ItemMergeEvent event) {
+        if (!cacheManager.canMerge(event.getEntity(), event.getTarget())) {
+            event.setCancelled(true);
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemMerge(ItemMergeEvent event) {
+        cacheManager.handleItemMerge(event.getEntity(), event.getTarget());
+    }
+
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onEntityRemove(EntityRemoveFromWorldEvent event) {
-        if (event.getEntity() instanceof Item item) {
-            cacheManager.handleEntityRemoval(item);
-        }
+        cacheManager.handleEntityRemoval(event.getEntity());
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -57,6 +135,11 @@ public final class ItemListener implements Listener {
         cacheManager.handleChunkUnload(chunk);
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        cacheManager.handleEntitiesUnload(event.getEntities());
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
         cacheManager.debug("Player %s quit; restoring items within %.1f blocks", event.getPlayer().getName(),
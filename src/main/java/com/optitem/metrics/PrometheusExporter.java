@@ -0,0 +1,158 @@
+package com.optitem.metrics;
+
+import com.optitem.cache.CacheMetrics;
+import com.optitem.cache.NBTCacheManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Periodically writes the cache metrics in the Prometheus text exposition format, for node_exporter's textfile
+ * collector or anything else that scrapes a file. The file is replaced atomically so readers never see a partial
+ * write.
+ */
+public final class PrometheusExporter {
+
+    private static final String PREFIX = "optitem_";
+
+    private final JavaPlugin plugin;
+    private final NBTCacheManager cacheManager;
+    private final Path file;
+    private final long intervalSeconds;
+    private BukkitTask task;
+    private boolean failureLogged;
+
+    public PrometheusExporter(JavaPlugin plugin, NBTCacheManager cacheManager, Path file, long intervalSeconds) {
+        this.plugin = plugin;
+        this.cacheManager = cacheManager;
+        this.file = file;
+        this.intervalSeconds = Math.max(1L, intervalSeconds);
+    }
+
+    public void start() {
+        if (task != null) {
+            return;
+        }
+        long intervalTicks = intervalSeconds * 20L;
+        task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::write, intervalTicks,
+                intervalTicks);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void write() {
+        String body = render(cacheManager.getMetrics(), cacheManager.getGauges());
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, body, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            failureLogged = false;
+        } catch (IOException ex) {
+            if (!failureLogged) {
+                failureLogged = true;
+                plugin.getLogger().warning("Failed to write metrics file " + file + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    static String render(CacheMetrics metrics, Map<String, Long> gauges) {
+        StringBuilder out = new StringBuilder(4096);
+        counter(out, "spawns_queued_total", "Item spawns handed to the worker queue", metrics.getSpawnsQueued());
+        counter(out, "spawns_dropped_total", "Item spawns skipped because the worker queue was full",
+                metrics.getSpawnsDropped());
+        counter(out, "spawns_cached_total", "Items replaced with a cache placeholder", metrics.getSpawnsCached());
+        counter(out, "cache_hits_total", "Lookups served by an existing cache entry", metrics.getCacheHits());
+        counter(out, "cache_misses_total", "Lookups that had to create or load an entry", metrics.getCacheMisses());
+        counter(out, "cache_evictions_total", "Entries evicted by the size bound", metrics.getEvictions());
+        counter(out, "sweep_cycles_total", "Completed unreferenced-entry sweep cycles", metrics.getSweepCycles());
+        counter(out, "sweep_freed_entries_total", "Unreferenced entries the sweeper removed",
+                metrics.getSweptEntries());
+        counter(out, "sweep_freed_bytes_total", "Snapshot bytes the sweeper freed", metrics.getSweptBytes());
+        counter(out, "packet_rewrites_total", "Metadata entries rewritten to the full client view",
+                metrics.getPacketRewrites());
+        gauge(out, "packet_rewrites_per_second", "Packet rewrites per second over the last few seconds",
+                metrics.getPacketRewritesPerSecond());
+        counter(out, "packet_minimal_views_total", "Rewrites that sent a distant viewer the minimal client view",
+                metrics.getMinimalViews());
+        counter(out, "packet_view_upgrades_total", "Minimal views resent in full once the viewer came into range",
+                metrics.getViewUpgrades());
+        counter(out, "packet_redundant_items_skipped_total",
+                "Item entries dropped from packets because the viewer already holds that view",
+                metrics.getRedundantItemsSkipped());
+
+        header(out, "restores_total", "Placeholders restored to the full item, by reason", "counter");
+        for (Map.Entry<String, Long> restore : metrics.getRestoresByReason().entrySet()) {
+            out.append(PREFIX).append("restores_total{reason=\"").append(restore.getKey()).append("\"} ")
+                    .append(restore.getValue()).append('\n');
+        }
+
+        for (Map.Entry<String, Long> gauge : gauges.entrySet()) {
+            gauge(out, gauge.getKey(), null, gauge.getValue());
+        }
+
+        histogram(out, "spawn_queue_wait_seconds", "Time a spawn waited for a worker", metrics.getQueueWait());
+        histogram(out, "spawn_processing_seconds", "Worker time spent encoding a spawn", metrics.getProcessing());
+        histogram(out, "spawn_apply_delay_seconds", "Time a processed spawn waited for the main thread",
+                metrics.getApplyDelay());
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "gauge");
+        out.append(PREFIX).append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, CacheMetrics.Histogram histogram) {
+        header(out, name, help, "histogram");
+        long cumulative = 0L;
+        int buckets = histogram.bucketCount();
+        for (int bucket = 0; bucket < buckets - 1; bucket++) {
+            cumulative += histogram.bucket(bucket);
+            double bound = histogram.upperBoundMicros(bucket) / 1_000_000D;
+            out.append(PREFIX).append(name).append("_bucket{le=\"").append(format(bound)).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        cumulative += histogram.bucket(buckets - 1);
+        out.append(PREFIX).append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(PREFIX).append(name).append("_sum ").append(format(histogram.sumMicros() / 1_000_000D))
+                .append('\n');
+        out.append(PREFIX).append(name).append("_count ").append(cumulative).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        if (help != null) {
+            out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        }
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.6g", value);
+    }
+}
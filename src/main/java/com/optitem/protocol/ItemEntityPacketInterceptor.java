@@ -2,37 +2,79 @@ package com.optitem.protocol;
 
 import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.ListenerPriority;
 import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.reflect.EquivalentConverter;
 import com.comphenix.protocol.wrappers.BukkitConverters;
+import com.comphenix.protocol.wrappers.EnumWrappers;
+import com.comphenix.protocol.wrappers.Pair;
 import com.comphenix.protocol.wrappers.WrappedDataValue;
+import com.optitem.cache.CacheKey;
 import com.optitem.cache.NBTCacheManager;
 import de.tr7zw.changeme.nbtapi.NBTItem;
+import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings("deprecation")
-public final class ItemEntityPacketInterceptor {
+public final class ItemEntityPacketInterceptor implements Listener {
 
-    private static final int ITEM_STACK_DATA_INDEX = 8;
+    /** Metadata index of the displayed item per rewritten type; armor stands show theirs through equipment only. */
+    private static final Map<EntityType, Integer> ITEM_DATA_INDEX = new EnumMap<>(EntityType.class);
+    private static final int NO_ITEM_DATA = -1;
+    private static final long VIEW_UPGRADE_INTERVAL_TICKS = 10L;
+
+    static {
+        ITEM_DATA_INDEX.put(EntityType.DROPPED_ITEM, 8);
+        ITEM_DATA_INDEX.put(EntityType.ITEM_FRAME, 8);
+        ITEM_DATA_INDEX.put(EntityType.GLOW_ITEM_FRAME, 8);
+        ITEM_DATA_INDEX.put(EntityType.ITEM_DISPLAY, 23);
+        ITEM_DATA_INDEX.put(EntityType.ARMOR_STAND, NO_ITEM_DATA);
+    }
 
     private final Plugin plugin;
     private final NBTCacheManager cacheManager;
+    private final double lodDistanceSquared;
     private final boolean debugLogging;
     private final EquivalentConverter<ItemStack> itemStackConverter = BukkitConverters.getItemStackConverter();
+    /** Per player, the spawned entities whose metadata can carry a placeholder; everything else is skipped unread. */
+    private final Map<UUID, Viewer> viewers = new ConcurrentHashMap<>();
     private PacketAdapter listener;
+    private PacketAdapter sentListener;
+    private BukkitTask upgradeTask;
 
-    public ItemEntityPacketInterceptor(Plugin plugin, NBTCacheManager cacheManager, boolean debugLogging) {
+    /**
+     * @param lodDistance viewers farther than this from an entity get its minimal client view until they come
+     *                    closer; {@code 0} always sends the full view
+     */
+    public ItemEntityPacketInterceptor(Plugin plugin, NBTCacheManager cacheManager, double lodDistance,
+            boolean debugLogging) {
         this.plugin = plugin;
         this.cacheManager = cacheManager;
+        this.lodDistanceSquared = lodDistance * lodDistance;
         this.debugLogging = debugLogging;
     }
 
@@ -41,81 +83,390 @@ public final class ItemEntityPacketInterceptor {
             return;
         }
 
-        listener = new PacketAdapter(plugin, ListenerPriority.NORMAL, PacketType.Play.Server.ENTITY_METADATA) {
+        viewers.clear();
+        listener = new PacketAdapter(plugin, ListenerPriority.NORMAL, PacketType.Play.Server.SPAWN_ENTITY,
+                PacketType.Play.Server.ENTITY_DESTROY, PacketType.Play.Server.RESPAWN,
+                PacketType.Play.Server.ENTITY_METADATA, PacketType.Play.Server.ENTITY_EQUIPMENT) {
             @Override
             public void onPacketSending(PacketEvent event) {
-                if (event.isCancelled()) {
+                if (event.isCancelled() || event.isPlayerTemporary() || event.getPlayer() == null) {
                     return;
                 }
-
-                List<WrappedDataValue> dataValues;
-                try {
-                    dataValues = event.getPacket().getDataValueCollectionModifier().read(0);
-                } catch (Exception ex) {
-                    return;
+                PacketType type = event.getPacketType();
+                if (type == PacketType.Play.Server.ENTITY_METADATA) {
+                    rewriteMetadata(event);
+                } else if (type == PacketType.Play.Server.ENTITY_EQUIPMENT) {
+                    rewriteEquipment(event);
+                } else if (type == PacketType.Play.Server.SPAWN_ENTITY) {
+                    trackSpawn(event);
+                } else if (type == PacketType.Play.Server.ENTITY_DESTROY) {
+                    forgetDestroyed(event);
+                } else {
+                    viewers.remove(event.getPlayer().getUniqueId());
                 }
+            }
+        };
 
-                if (dataValues == null || dataValues.isEmpty()) {
+        // Runs after every other plugin has had its say, so only packets that really go out count as sent.
+        sentListener = new PacketAdapter(plugin, ListenerPriority.MONITOR, PacketType.Play.Server.ENTITY_METADATA,
+                PacketType.Play.Server.ENTITY_EQUIPMENT) {
+            @Override
+            public void onPacketSending(PacketEvent event) {
+                if (event.isCancelled() || event.isPlayerTemporary() || event.getPlayer() == null) {
                     return;
                 }
+                confirmSent(event);
+            }
+        };
 
-                List<WrappedDataValue> updated = new ArrayList<>(dataValues.size());
-                boolean modified = false;
-                int sanitizedEntries = 0;
+        ProtocolLibrary.getProtocolManager().addPacketListener(listener);
+        ProtocolLibrary.getProtocolManager().addPacketListener(sentListener);
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        if (lodDistanceSquared > 0D) {
+            upgradeTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::upgradeViews,
+                    VIEW_UPGRADE_INTERVAL_TICKS, VIEW_UPGRADE_INTERVAL_TICKS);
+        }
+    }
 
-                for (WrappedDataValue dataValue : dataValues) {
-                    if (dataValue == null || dataValue.getIndex() != ITEM_STACK_DATA_INDEX) {
-                        updated.add(dataValue);
-                        continue;
-                    }
+    public void unregister() {
+        if (listener != null) {
+            ProtocolLibrary.getProtocolManager().removePacketListener(listener);
+            listener = null;
+        }
+        if (sentListener != null) {
+            ProtocolLibrary.getProtocolManager().removePacketListener(sentListener);
+            sentListener = null;
+        }
+        if (upgradeTask != null) {
+            upgradeTask.cancel();
+            upgradeTask = null;
+        }
+        HandlerList.unregisterAll(this);
+        viewers.clear();
+    }
 
-                    ItemStack placeholder = extractItemStack(dataValue.getValue());
-                    if (placeholder == null) {
-                        updated.add(dataValue);
-                        continue;
-                    }
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        viewers.remove(event.getPlayer().getUniqueId());
+    }
 
-                    Optional<ItemStack> clientStack = cacheManager.createClientViewStack(placeholder);
-                    if (clientStack.isEmpty()) {
-                        updated.add(dataValue);
-                        continue;
-                    }
+    private void trackSpawn(PacketEvent event) {
+        PacketContainer packet = event.getPacket();
+        EntityType type = packet.getEntityTypeModifier().read(0);
+        if (type == null || !ITEM_DATA_INDEX.containsKey(type)) {
+            return;
+        }
+        TrackedEntity tracked = new TrackedEntity(type, packet.getUUIDs().read(0), packet.getDoubles().read(0),
+                packet.getDoubles().read(1), packet.getDoubles().read(2));
+        viewers.computeIfAbsent(event.getPlayer().getUniqueId(), key -> new Viewer())
+                .visible.put(packet.getIntegers().read(0), tracked);
+    }
 
-                    ItemStack sanitized = sanitizeForClient(clientStack.get());
-                    Object nmsStack = convertToNmsStack(sanitized);
-                    if (nmsStack == null) {
-                        updated.add(dataValue);
-                        continue;
-                    }
+    private void forgetDestroyed(PacketEvent event) {
+        Viewer viewer = viewers.get(event.getPlayer().getUniqueId());
+        if (viewer == null || viewer.visible.isEmpty()) {
+            return;
+        }
+        List<Integer> destroyed = event.getPacket().getIntLists().read(0);
+        if (destroyed != null) {
+            for (Integer entityId : destroyed) {
+                viewer.visible.remove(entityId);
+            }
+        }
+    }
 
-                    WrappedDataValue replacement = new WrappedDataValue(
-                            dataValue.getIndex(),
-                            dataValue.getSerializer(),
-                            nmsStack);
-                    updated.add(replacement);
-                    modified = true;
-                    sanitizedEntries++;
-                }
+    private void rewriteMetadata(PacketEvent event) {
+        PacketContainer packet = event.getPacket();
+        Viewer viewer = viewers.get(event.getPlayer().getUniqueId());
+        TrackedEntity tracked = tracked(viewer, event);
+        int itemIndex = tracked == null ? NO_ITEM_DATA : ITEM_DATA_INDEX.get(tracked.type);
+        if (itemIndex == NO_ITEM_DATA) {
+            return;
+        }
+        boolean minimal = isDistant(viewer, tracked);
+
+        List<WrappedDataValue> dataValues;
+        try {
+            dataValues = packet.getDataValueCollectionModifier().read(0);
+        } catch (Exception ex) {
+            return;
+        }
+
+        if (dataValues == null || dataValues.isEmpty()) {
+            return;
+        }
+
+        List<WrappedDataValue> updated = new ArrayList<>(dataValues.size());
+        SentView sent = null;
+        WrappedDataValue deferred = null;
+        boolean modified = false;
+        int sanitizedEntries = 0;
+        int skippedEntries = 0;
+
+        for (WrappedDataValue dataValue : dataValues) {
+            if (dataValue == null || dataValue.getIndex() != itemIndex) {
+                updated.add(dataValue);
+                continue;
+            }
+
+            ItemStack placeholder = extractItemStack(dataValue.getValue());
+            CacheKey signature = placeholder == null ? null : cacheManager.signatureOf(placeholder);
+            if (signature == null) {
+                tracked.forgetItem();
+                updated.add(dataValue);
+                continue;
+            }
+
+            SentView view = new SentView(signature, placeholder, minimal);
+            if (view.equals(tracked.sentItem)) {
+                modified = true;
+                skippedEntries++;
+                continue;
+            }
+
+            Optional<Object> nmsStack = cacheManager.resolveClientView(placeholder, signature,
+                    this::renderClientStack, minimal);
+            if (nmsStack.isEmpty()) {
+                tracked.forgetItem();
+                updated.add(dataValue);
+                continue;
+            }
+            sent = view;
+            deferred = minimal ? dataValue : null;
+
+            WrappedDataValue replacement = new WrappedDataValue(
+                    dataValue.getIndex(),
+                    dataValue.getSerializer(),
+                    nmsStack.get());
+            updated.add(replacement);
+            modified = true;
+            sanitizedEntries++;
+        }
+
+        if (!modified) {
+            return;
+        }
+        if (updated.isEmpty()) {
+            event.setCancelled(true);
+        } else {
+            PacketContainer copy = writeForViewer(event);
+            copy.getDataValueCollectionModifier().write(0, updated);
+            tracked.pendingItem = sent == null ? null : new PendingView<>(copy, sent, deferred);
+        }
+        if (skippedEntries > 0) {
+            cacheManager.getMetrics().recordRedundantItemsSkipped(skippedEntries);
+        }
+        if (sanitizedEntries > 0) {
+            cacheManager.getMetrics().recordPacketRewrites(sanitizedEntries);
+            if (minimal) {
+                cacheManager.getMetrics().recordMinimalViews(sanitizedEntries);
+            }
+            debug("Sanitized %d metadata entries for %s%s", sanitizedEntries, event.getPlayer().getName(),
+                    minimal ? " (minimal)" : "");
+        }
+    }
+
+    private void rewriteEquipment(PacketEvent event) {
+        Viewer viewer = viewers.get(event.getPlayer().getUniqueId());
+        TrackedEntity tracked = tracked(viewer, event);
+        if (tracked == null || tracked.type != EntityType.ARMOR_STAND) {
+            return;
+        }
+        boolean minimal = isDistant(viewer, tracked);
+        PacketContainer packet = event.getPacket();
+        List<Pair<EnumWrappers.ItemSlot, ItemStack>> slots;
+        try {
+            slots = packet.getSlotStackPairLists().read(0);
+        } catch (Exception ex) {
+            return;
+        }
+        if (slots == null || slots.isEmpty()) {
+            return;
+        }
+
+        List<Pair<EnumWrappers.ItemSlot, ItemStack>> updated = new ArrayList<>(slots.size());
+        SentView sent = null;
+        ItemStack deferred = null;
+        boolean modified = false;
+        boolean skipped = false;
+        for (Pair<EnumWrappers.ItemSlot, ItemStack> slot : slots) {
+            if (slot.getFirst() != EnumWrappers.ItemSlot.HEAD) {
+                updated.add(slot);
+                continue;
+            }
+            ItemStack placeholder = slot.getSecond();
+            CacheKey signature = placeholder == null ? null : cacheManager.signatureOf(placeholder);
+            if (signature == null) {
+                tracked.forgetHead();
+                updated.add(slot);
+                continue;
+            }
+            SentView view = new SentView(signature, placeholder, minimal);
+            if (view.equals(tracked.sentHead)) {
+                skipped = true;
+                continue;
+            }
+            ItemStack rendered = cacheManager
+                    .resolveClientView(placeholder, signature, this::renderClientStack, minimal)
+                    .map(this::extractItemStack)
+                    .orElse(null);
+            if (rendered == null) {
+                tracked.forgetHead();
+                updated.add(slot);
+                continue;
+            }
+            sent = view;
+            deferred = minimal ? placeholder : null;
+            updated.add(new Pair<>(slot.getFirst(), rendered));
+            modified = true;
+        }
+
+        if (skipped) {
+            cacheManager.getMetrics().recordRedundantItemsSkipped(1);
+            if (updated.isEmpty()) {
+                event.setCancelled(true);
+                return;
+            }
+        }
+        if (modified || skipped) {
+            PacketContainer copy = writeForViewer(event);
+            copy.getSlotStackPairLists().write(0, updated);
+            tracked.pendingHead = sent == null ? null : new PendingView<>(copy, sent, deferred);
+        }
+        if (modified) {
+            cacheManager.getMetrics().recordPacketRewrites(1);
+            if (minimal) {
+                cacheManager.getMetrics().recordMinimalViews(1);
+            }
+            debug("Sanitized armor stand equipment for %s%s", event.getPlayer().getName(),
+                    minimal ? " (minimal)" : "");
+        }
+    }
+
+    /**
+     * The packet of {@code event}, copied first: the server hands the same packet to every viewer, and what each
+     * of them is sent now depends on their distance and what they already hold.
+     */
+    private PacketContainer writeForViewer(PacketEvent event) {
+        PacketContainer copy = event.getPacket().shallowClone();
+        event.setPacket(copy);
+        return copy;
+    }
+
+    /**
+     * Records the views a rewritten packet carried once it made it through every listener uncancelled. Until then
+     * the viewer is assumed to still hold what it had, so a cancelled packet can never cause a later one to be
+     * skipped as redundant.
+     */
+    private void confirmSent(PacketEvent event) {
+        TrackedEntity tracked = tracked(viewers.get(event.getPlayer().getUniqueId()), event);
+        if (tracked == null) {
+            return;
+        }
+        PacketContainer packet = event.getPacket();
+        PendingView<WrappedDataValue> item = tracked.pendingItem;
+        if (item != null && item.packet == packet) {
+            tracked.pendingItem = null;
+            tracked.sentItem = item.view;
+            tracked.deferredItem = item.deferred;
+        }
+        PendingView<ItemStack> head = tracked.pendingHead;
+        if (head != null && head.packet == packet) {
+            tracked.pendingHead = null;
+            tracked.sentHead = head.view;
+            tracked.deferredHead = head.deferred;
+        }
+    }
+
+    /** The entity a metadata or equipment packet refers to, or {@code null} if its packets are not rewritten. */
+    private TrackedEntity tracked(Viewer viewer, PacketEvent event) {
+        if (viewer == null || viewer.visible.isEmpty()) {
+            return null;
+        }
+        Integer entityId = event.getPacket().getIntegers().read(0);
+        return entityId == null ? null : viewer.visible.get(entityId);
+    }
+
+    /**
+     * Measured from where the viewer stood at the last {@link #upgradeViews} run, since packets are rewritten off
+     * the main thread; a viewer with no position yet gets the full view.
+     */
+    private boolean isDistant(Viewer viewer, TrackedEntity tracked) {
+        Location location = viewer.location;
+        if (lodDistanceSquared <= 0D || location == null) {
+            return false;
+        }
+        double dx = location.getX() - tracked.x;
+        double dy = location.getY() - tracked.y;
+        double dz = location.getZ() - tracked.z;
+        return dx * dx + dy * dy + dz * dz > lodDistanceSquared;
+    }
 
-                if (modified) {
-                    event.getPacket().getDataValueCollectionModifier().write(0, updated);
-                    String target = event.getPlayer() != null ? event.getPlayer().getName() : "unknown-player";
-                    ItemEntityPacketInterceptor.this.debug("Sanitized %d metadata entries for %s", sanitizedEntries,
-                            target);
+    /**
+     * Records where each viewer and each tracked entity that can move stands, then resends the placeholder parts a
+     * player last got in minimal form once they are within range. The resent packets pass through this interceptor
+     * again and come out as the full view.
+     */
+    private void upgradeViews() {
+        ProtocolManager protocolManager = ProtocolLibrary.getProtocolManager();
+        Map<UUID, Location> positions = new HashMap<>();
+        for (Map.Entry<UUID, Viewer> entry : viewers.entrySet()) {
+            Player player = plugin.getServer().getPlayer(entry.getKey());
+            if (player == null) {
+                continue;
+            }
+            Viewer viewer = entry.getValue();
+            viewer.location = player.getLocation();
+            for (Map.Entry<Integer, TrackedEntity> visible : viewer.visible.entrySet()) {
+                TrackedEntity tracked = visible.getValue();
+                if (tracked.movable()) {
+                    Location position = positions.computeIfAbsent(tracked.entityId, this::currentPosition);
+                    if (position != null) {
+                        tracked.moveTo(position);
+                    }
+                }
+                if ((tracked.deferredItem == null && tracked.deferredHead == null) || isDistant(viewer, tracked)) {
+                    continue;
                 }
+                resendDeferred(protocolManager, player, visible.getKey(), tracked);
             }
-        };
+        }
+    }
 
-        ProtocolLibrary.getProtocolManager().addPacketListener(listener);
+    private Location currentPosition(UUID entityId) {
+        Entity entity = entityId == null ? null : plugin.getServer().getEntity(entityId);
+        return entity == null ? null : entity.getLocation();
     }
 
-    public void unregister() {
-        if (listener != null) {
-            ProtocolLibrary.getProtocolManager().removePacketListener(listener);
-            listener = null;
+    private void resendDeferred(ProtocolManager protocolManager, Player player, int entityId, TrackedEntity tracked) {
+        WrappedDataValue item = tracked.deferredItem;
+        ItemStack head = tracked.deferredHead;
+        tracked.deferredItem = null;
+        tracked.deferredHead = null;
+        try {
+            if (item != null) {
+                PacketContainer packet = protocolManager.createPacket(PacketType.Play.Server.ENTITY_METADATA);
+                packet.getIntegers().write(0, entityId);
+                packet.getDataValueCollectionModifier().write(0, List.of(item));
+                protocolManager.sendServerPacket(player, packet);
+            }
+            if (head != null) {
+                PacketContainer packet = protocolManager.createPacket(PacketType.Play.Server.ENTITY_EQUIPMENT);
+                packet.getIntegers().write(0, entityId);
+                packet.getSlotStackPairLists().write(0, List.of(new Pair<>(EnumWrappers.ItemSlot.HEAD, head)));
+                protocolManager.sendServerPacket(player, packet);
+            }
+            cacheManager.getMetrics().recordViewUpgrade();
+        } catch (Exception ex) {
+            debug("Failed to upgrade client view of entity %d for %s: %s", entityId, player.getName(),
+                    ex.getMessage());
         }
     }
 
+    private Object renderClientStack(ItemStack clientStack) {
+        return convertToNmsStack(sanitizeForClient(clientStack));
+    }
+
     private Object convertToNmsStack(ItemStack stack) {
         if (stack == null) {
             return null;
@@ -184,4 +535,100 @@ public final class ItemEntityPacketInterceptor {
         String formatted = args.length == 0 ? message : String.format(message, args);
         plugin.getLogger().info("[Debug] " + formatted);
     }
+
+    /** A player's tracked entities and where the main thread last saw them. */
+    private static final class Viewer {
+        private final Map<Integer, TrackedEntity> visible = new ConcurrentHashMap<>();
+        private volatile Location location;
+    }
+
+    /**
+     * An entity a player was sent, where the main thread last saw it, and what of it they last got only in minimal
+     * form.
+     */
+    private static final class TrackedEntity {
+        private final EntityType type;
+        private final UUID entityId;
+        private volatile double x;
+        private volatile double y;
+        private volatile double z;
+        private volatile WrappedDataValue deferredItem;
+        private volatile ItemStack deferredHead;
+        private volatile SentView sentItem;
+        private volatile SentView sentHead;
+        private volatile PendingView<WrappedDataValue> pendingItem;
+        private volatile PendingView<ItemStack> pendingHead;
+
+        private TrackedEntity(EntityType type, UUID entityId, double x, double y, double z) {
+            this.type = type;
+            this.entityId = entityId;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        /** Frames hang where they spawned; everything else can be pushed, carried or teleported. */
+        private boolean movable() {
+            return type != EntityType.ITEM_FRAME && type != EntityType.GLOW_ITEM_FRAME;
+        }
+
+        private void moveTo(Location location) {
+            x = location.getX();
+            y = location.getY();
+            z = location.getZ();
+        }
+
+        /** The item slot no longer shows a placeholder, so neither its last view nor a pending upgrade applies. */
+        private void forgetItem() {
+            sentItem = null;
+            deferredItem = null;
+        }
+
+        private void forgetHead() {
+            sentHead = null;
+            deferredHead = null;
+        }
+    }
+
+    /** A view written into {@code packet} that counts as sent once the packet leaves uncancelled. */
+    private static final class PendingView<T> {
+        private final PacketContainer packet;
+        private final SentView view;
+        private final T deferred;
+
+        private PendingView(PacketContainer packet, SentView view, T deferred) {
+            this.packet = packet;
+            this.view = view;
+            this.deferred = deferred;
+        }
+    }
+
+    /**
+     * What a viewer's client holds for one item slot. The rendered view depends only on the entry, the placeholder's
+     * material and amount, and the level of detail, so a packet carrying an equal view changes nothing client-side.
+     */
+    private static final class SentView {
+        private final CacheKey signature;
+        private final Material type;
+        private final int amount;
+        private final boolean minimal;
+
+        private SentView(CacheKey signature, ItemStack placeholder, boolean minimal) {
+            this.signature = signature;
+            this.type = placeholder.getType();
+            this.amount = placeholder.getAmount();
+            this.minimal = minimal;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SentView view && signature.equals(view.signature) && type == view.type
+                    && amount == view.amount && minimal == view.minimal;
+        }
+
+        @Override
+        public int hashCode() {
+            return (signature.hashCode() * 31 + type.hashCode()) * 31 + amount * 2 + (minimal ? 1 : 0);
+        }
+    }
 }